@@ -0,0 +1,30 @@
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Main class for running JMH benchmarks
+ * <p>
+ * Arguments are JMH command line options (eg. {@code NSECBenchmark -p records=1000}). Every benchmark is run with the
+ * GC profiler, so allocated bytes per operation and garbage collection counts are reported with the time, and the
+ * results are written into a CSV file.
+ */
+public class BenchmarkMain {
+    // Configurable Data
+    private static final String resultFilename = "benchmark/results.csv";
+
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.CSV)
+                .result(resultFilename)
+                .build();
+        new Runner(options).run();
+    }
+}
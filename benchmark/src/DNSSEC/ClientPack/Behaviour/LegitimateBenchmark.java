@@ -0,0 +1,143 @@
+package DNSSEC.ClientPack.Behaviour;
+
+import DNSSEC.ClientPack.Client;
+import DNSSEC.ClientPack.Response;
+import DNSSEC.ClientPack.ServerConnection;
+import DNSSEC.Common.BinaryProtocol;
+import DNSSEC.Common.Log;
+import DNSSEC.Common.SignatureAlgorithm;
+import DNSSEC.ServerPack.EncodedResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.PrivateKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * JMH benchmark of response parsing by {@link Legitimate#requestCore} for both protocols
+ * <p>
+ * The connection reads the same encoded server response again and again from memory and discards queries, so no
+ * server or socket is involved. {@code readResponse} measures only decoding of the response, {@code requestCore}
+ * measures the whole request including the signature verification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegitimateBenchmark {
+    // Configurable Data
+    private static final String domain = "mit.edu";
+    private static final String ip = "18.9.22.69";
+    private static final String nextDomain = "mitre.org";
+
+
+    @Param({"TEXT", "BINARY"})
+    public Client.Protocol protocol;
+
+    @Param({"answer", "nsec"})
+    public String response;
+
+    private ServerConnection connection;
+    private String requestedDomain;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Log.setLevel(Log.Level.OFF);
+        new Legitimate("127.0.0.1", protocol);  // reads public key of the signature algorithm
+
+        // response signed as by the server
+        SignatureAlgorithm algorithm = SignatureAlgorithm.configured();
+        PrivateKey privateKey = algorithm.readPrivateKey(algorithm.keyFolder + "privateKey");
+        SignatureAlgorithm.Signer signer = algorithm.newSigner(privateKey);
+        EncodedResponse encodedResponse;
+        if (response.equals("answer")) {
+            requestedDomain = domain;
+            encodedResponse = EncodedResponse.answer(domain, ip, signer.sign(domain + "," + ip));
+        } else {
+            requestedDomain = domain + "-none";
+            encodedResponse = EncodedResponse.nsec(domain, nextDomain, signer.sign(domain + "," + nextDomain));
+        }
+
+        // binary connection is acknowledged by the server before any response
+        byte[] handshake = new byte[0];
+        if (protocol == Client.Protocol.BINARY) {
+            ByteArrayOutputStream acknowledgement = new ByteArrayOutputStream();
+            BinaryProtocol.FrameWriter writer = new BinaryProtocol.FrameWriter(acknowledgement);
+            writer.beginFrame(BinaryProtocol.HELLO, 0, 0);
+            writer.endFrame();
+            writer.flush();
+            handshake = acknowledgement.toByteArray();
+        }
+        byte[] responseBytes = (protocol == Client.Protocol.BINARY) ? encodedResponse.binaryBytes() : encodedResponse.textBytes();
+
+        connection = ServerConnection.open(new ReplayInputStream(handshake, responseBytes), new DiscardingOutputStream(),
+                protocol, "127.0.0.1");
+    }
+
+    @Benchmark
+    public Response readResponse() throws IOException {
+        return connection.readResponse();
+    }
+
+    @Benchmark
+    public boolean requestCore() throws IOException {
+        Legitimate.Result result = Legitimate.requestCore(connection, requestedDomain, false, null);
+        return result != null && result.isVerified();
+    }
+
+
+    /**
+     * Input stream which returns its prefix once and then repeats its body forever
+     */
+    private static class ReplayInputStream extends InputStream {
+        private final byte[] prefix;
+        private final byte[] body;
+        private int prefixPosition = 0;
+        private int bodyPosition = 0;
+
+        ReplayInputStream(byte[] prefix, byte[] body) {
+            this.prefix = prefix;
+            this.body = body;
+        }
+
+        @Override
+        public int read() {
+            if (prefixPosition < prefix.length) return prefix[prefixPosition++] & 0xFF;
+            int value = body[bodyPosition] & 0xFF;
+            bodyPosition = (bodyPosition + 1 == body.length) ? 0 : bodyPosition + 1;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (prefixPosition < prefix.length) {
+                int count = Math.min(length, prefix.length - prefixPosition);
+                System.arraycopy(prefix, prefixPosition, bytes, offset, count);
+                prefixPosition += count;
+                return count;
+            }
+            int count = Math.min(length, body.length - bodyPosition);
+            System.arraycopy(body, bodyPosition, bytes, offset, count);
+            bodyPosition = (bodyPosition + count == body.length) ? 0 : bodyPosition + count;
+            return count;
+        }
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
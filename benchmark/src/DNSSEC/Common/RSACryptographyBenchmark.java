@@ -0,0 +1,55 @@
+package DNSSEC.Common;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * JMH benchmark of {@link RSA_Cryptography#getSignatureFromHash(String, PrivateKey)} and
+ * {@link RSA_Cryptography#getHashFromSignature(String, PublicKey)} with the keys in {@code RSA_keyPair} folder
+ * <p>
+ * Each thread has its own {@code RSA_Cryptography}, because its cipher is not thread-safe.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RSACryptographyBenchmark {
+    // Configurable Data
+    private static final String keyFolder = SignatureAlgorithm.RSA_HASH.keyFolder;
+    private static final String record = "mit.edu,18.9.22.69";
+
+
+    private RSA_Cryptography rsa;
+    private PrivateKey privateKey;
+    private PublicKey publicKey;
+    private String hash;
+    private String signature;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        rsa = new RSA_Cryptography();
+        privateKey = rsa.getPrivate(keyFolder + "privateKey");
+        publicKey = rsa.getPublic(keyFolder + "publicKey");
+        hash = Integer.toString(record.hashCode());     // as signed by RSA_HASH signature algorithm
+        signature = rsa.getSignatureFromHash(hash, privateKey);
+    }
+
+    @Benchmark
+    public String getSignatureFromHash() throws GeneralSecurityException, UnsupportedEncodingException {
+        return rsa.getSignatureFromHash(hash, privateKey);
+    }
+
+    @Benchmark
+    public String getHashFromSignature() throws GeneralSecurityException, UnsupportedEncodingException {
+        return rsa.getHashFromSignature(signature, publicKey);
+    }
+}
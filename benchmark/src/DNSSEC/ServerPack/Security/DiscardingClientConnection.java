@@ -0,0 +1,43 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.ServerPack.ClientConnection;
+import DNSSEC.ServerPack.EncodedResponse;
+import DNSSEC.ServerPack.ZoneUpdate;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Client connection which discards all responses, so that benchmarks measure only the server side of a response
+ */
+class DiscardingClientConnection extends ClientConnection {
+    @Override
+    public ZoneUpdate readUpdate() {
+        return null;
+    }
+
+    @Override
+    public String readQuery() {
+        return null;
+    }
+
+    @Override
+    public boolean hasNextQuery() {
+        return false;
+    }
+
+    @Override
+    public boolean isQueryPending() {
+        return false;
+    }
+
+    @Override
+    public void send(EncodedResponse response) {
+    }
+
+    @Override
+    public void sendMessage(String message) {
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,74 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.Log;
+import DNSSEC.ServerPack.ClientConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * JMH benchmark of {@link LowProfiling#isRequestLegitimate(String, int, ClientConnection)} with warm and cold clients
+ * <p>
+ * Warm clients are a few clients which are already in the activity table. Cold clients are many more clients than the
+ * activity table keeps, so almost every request creates an activity and evicts the least recently used one. Domains
+ * are requested in random order, so clients are not blocked.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LowProfilingBenchmark {
+    // Configurable Data
+    private static final int totalSuspiciousRecords = 10;
+    private static final int warmClients = 64;
+    private static final int coldClients = 1 << 20;     // more than the activity table keeps
+    private static final int totalDomainOrdinals = 1 << 16;
+
+
+    @Param({"warm", "cold"})
+    public String clients;
+
+    private LowProfiling server;
+    private ClientConnection connection;
+    private String[] clientIps;
+    private int[] domainOrdinals;
+    private int nextClient = 0;
+    private int nextDomain = 0;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Log.setLevel(Log.Level.OFF);
+        server = new LowProfiling(totalSuspiciousRecords);
+        connection = new DiscardingClientConnection();
+
+        clientIps = new String[clients.equals("warm") ? warmClients : coldClients];
+        for (int i = 0; i < clientIps.length; i++)
+            clientIps[i] = "10." + Integer.toString((i >>> 16) & 0xFF) + "." + Integer.toString((i >>> 8) & 0xFF) +
+                    "." + Integer.toString(i & 0xFF);
+
+        Random random = new Random(1);
+        int maxOrdinal = LowProfiling.domainOrdinal(NSEC.zone.size() - 1);
+        domainOrdinals = new int[totalDomainOrdinals];
+        for (int i = 0; i < domainOrdinals.length; i++) domainOrdinals[i] = random.nextInt(maxOrdinal + 1);
+
+        // warm clients are in the activity table before measurement
+        if (clients.equals("warm")) {
+            for (String clientIp : clientIps) server.isRequestLegitimate(clientIp, 0, connection);
+        }
+    }
+
+    @Benchmark
+    public boolean isRequestLegitimate() throws IOException {
+        String clientIp = clientIps[nextClient];
+        nextClient = (nextClient + 1 == clientIps.length) ? 0 : nextClient + 1;
+        int domainOrdinal = domainOrdinals[nextDomain];
+        nextDomain = (nextDomain + 1) & (totalDomainOrdinals - 1);
+        return server.isRequestLegitimate(clientIp, domainOrdinal, connection);
+    }
+}
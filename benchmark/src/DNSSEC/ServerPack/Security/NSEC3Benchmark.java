@@ -0,0 +1,77 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.Log;
+import DNSSEC.ServerPack.ClientConnection;
+import DNSSEC.ServerPack.ServerMetrics.ResponseType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * JMH benchmark of {@link NSEC3} for several iteration counts, to be compared with {@link NSECBenchmark} on the same
+ * zone
+ * <p>
+ * Existing and non-existing domains are answered through a connection which discards responses, as in
+ * {@code NSECBenchmark}, so the difference is the hashing of the query and the hash chain lookup. {@code build}
+ * measures building the hash chain (hashing, sorting and signing the whole zone); the GC profiler reports the bytes it
+ * allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NSEC3Benchmark {
+    private static final byte[] salt = {(byte) 0xAB, (byte) 0xCD, 0x12, 0x34, 0x56, 0x78, 0x0F, 0x1E};
+
+    @Param({"0", "10", "100", "500"})
+    public int iterations;
+
+    private NSEC3 server;
+    private ClientConnection connection;
+    private String[] existingDomains;
+    private String[] nonExistingDomains;
+    private int next = 0;
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Log.setLevel(Log.Level.OFF);
+        server = new NSEC3(iterations, salt);
+        Zone zone = NSEC.zone;
+
+        existingDomains = new String[zone.size()];
+        nonExistingDomains = new String[zone.size()];
+        for (int i = 0; i < zone.size(); i++) {
+            existingDomains[i] = zone.gapEnd(i);
+            nonExistingDomains[i] = existingDomains[i] + "-none";
+        }
+        connection = new DiscardingClientConnection();
+    }
+
+    @Benchmark
+    public ResponseType existingDomain() throws IOException {
+        return server.respondCore(connection, existingDomains[nextIndex()]);
+    }
+
+    @Benchmark
+    public ResponseType nonExistingDomain() throws IOException {
+        return server.respondCore(connection, nonExistingDomains[nextIndex()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public NSEC3 build() {
+        return new NSEC3(iterations, salt);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1 == existingDomains.length) ? 0 : index + 1;
+        return index;
+    }
+}
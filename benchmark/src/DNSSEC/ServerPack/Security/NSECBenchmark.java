@@ -0,0 +1,62 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.Log;
+import DNSSEC.ServerPack.ClientConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * JMH benchmark of {@link NSEC#respondCore(ClientConnection, String)} for existing and non-existing domains
+ * <p>
+ * Every invocation answers the next domain of the zone (or the next domain inside an NSEC gap) through a connection
+ * which discards responses, so only the lookup and the response path are measured. Heap allocation of the response
+ * path is reported by the GC profiler ({@code gc.alloc.rate.norm}, bytes per operation), which is 0 when a response is
+ * written without any allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NSECBenchmark {
+    private ClientConnection connection;
+    private String[] existingDomains;
+    private String[] nonExistingDomains;
+    private int next = 0;
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Log.setLevel(Log.Level.OFF);
+        new NSEC();
+        Zone zone = NSEC.zone;
+
+        existingDomains = new String[zone.size()];
+        nonExistingDomains = new String[zone.size()];
+        for (int i = 0; i < zone.size(); i++) {
+            existingDomains[i] = zone.gapEnd(i);
+            nonExistingDomains[i] = existingDomains[i] + "-none";
+        }
+        connection = new DiscardingClientConnection();
+    }
+
+    @Benchmark
+    public void existingDomain() throws IOException {
+        NSEC.respondCore(connection, existingDomains[nextIndex()]);
+    }
+
+    @Benchmark
+    public void nonExistingDomain() throws IOException {
+        NSEC.respondCore(connection, nonExistingDomains[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1 == existingDomains.length) ? 0 : index + 1;
+        return index;
+    }
+}
@@ -0,0 +1,93 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.Log;
+import DNSSEC.ServerPack.Server;
+import DNSSEC.ServerPack.ZoneImage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * JMH benchmark of zone loading from a pre-signed zone image and of zone signing (the two ways of
+ * {@code NSEC.initialize}) for synthetic zones of 10^3 to 10^6 records
+ * <p>
+ * Each invocation builds the whole zone once, so it is measured as single shot time. Signing uses the configured
+ * signature algorithm and takes minutes for the largest zone (choose sizes by {@code -p records=...}). The image of the
+ * synthetic zone is written into a temporary file, so {@code domain_ip.zone} is never changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZoneLoadBenchmark {
+    // Configurable Data
+    private static final int signatureLength = 128;     // same as RSA_HASH signatures
+
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    private List<Server.DomainIp> domainIps;
+    private File imageFile;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Log.setLevel(Log.Level.OFF);
+        new NSEC();     // reads keys of the signature algorithm
+
+        // sorted synthetic records with the suffixes of real domains
+        String[] suffixes = {".edu", ".ac.uk", ".edu.au", ".ac.jp", ".org"};
+        domainIps = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            String domain = "host" + String.format("%07d", i) + suffixes[i % suffixes.length];
+            String ip = "10." + Integer.toString((i >>> 16) & 0xFF) + "." + Integer.toString((i >>> 8) & 0xFF) +
+                    "." + Integer.toString(i & 0xFF);
+            domainIps.add(new Server.DomainIp(domain, ip));
+        }
+        domainIps.sort(Server.DomainIp.SORT_BY_DOMAIN);
+
+        // image with random signatures, because loading does not verify them
+        Random random = new Random(1);
+        List<byte[]> recordSignatures = new ArrayList<>(records);
+        List<byte[]> gapSignatures = new ArrayList<>(records + 1);
+        for (int i = 0; i < records; i++) recordSignatures.add(randomSignature(random));
+        for (int i = 0; i <= records; i++) gapSignatures.add(randomSignature(random));
+        imageFile = File.createTempFile("zone-benchmark", ".zone");
+        imageFile.deleteOnExit();
+        ZoneImage.write(imageFile, records, domainIps, recordSignatures, gapSignatures);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        imageFile.delete();
+    }
+
+    @Benchmark
+    public Zone loadZoneImage() {
+        ZoneImage image = ZoneImage.open(imageFile, records);
+        if (image == null) throw new IllegalStateException("Zone image cannot be opened.");
+        return NSEC.loadZone(image.readDomainIps(), image);
+    }
+
+    @Benchmark
+    public Zone signZone() {
+        return NSEC.signZone(domainIps, false);
+    }
+
+
+    private static byte[] randomSignature(Random random) {
+        byte[] signature = new byte[signatureLength];
+        random.nextBytes(signature);
+        return signature;
+    }
+}
@@ -0,0 +1,74 @@
+package DNSSEC.ServerPack;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * JMH benchmark of loading a domain-IP file by {@link ZoneLoader} and by the former sequential reader
+ * ({@code Scanner}, {@code split} and {@code Collections.sort}) for synthetic files of 10^5 to 10^7 records
+ * <p>
+ * Records are written in random order into a temporary file, so both loaders sort the whole zone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ZoneLoaderBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    public int records;
+
+    private File file;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        String[] suffixes = {".edu", ".ac.uk", ".edu.au", ".ac.jp", ".org"};
+        Random random = new Random(1);
+        file = File.createTempFile("zone-loader-benchmark", ".csv");
+        file.deleteOnExit();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < records; i++) {
+                int host = random.nextInt(records);
+                out.write("host" + Integer.toString(host) + suffixes[i % suffixes.length] + ",10." +
+                        Integer.toString((host >>> 16) & 0xFF) + "." + Integer.toString((host >>> 8) & 0xFF) + "." +
+                        Integer.toString(host & 0xFF) + "\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Benchmark
+    public List<Server.DomainIp> zoneLoader() throws IOException {
+        return ZoneLoader.load(file).domainIps;
+    }
+
+    @Benchmark
+    public List<Server.DomainIp> scanner() throws FileNotFoundException {
+        List<Server.DomainIp> domainIps = new ArrayList<>();
+        try (Scanner in = new Scanner(file)) {
+            while (in.hasNextLine()) {
+                String[] input = in.nextLine().split(",");
+                if (input.length != 2) break;
+                domainIps.add(new Server.DomainIp(input[0], input[1]));
+            }
+        }
+        Collections.sort(domainIps, Server.DomainIp.SORT_BY_DOMAIN);
+        return domainIps;
+    }
+}
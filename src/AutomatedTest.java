@@ -1,15 +1,32 @@
 import DNSSEC.ClientPack.Behaviour.Attacker;
+import DNSSEC.ClientPack.Client;
+import DNSSEC.Common.Log;
 import DNSSEC.ServerPack.Security.LowProfiling;
 import DNSSEC.ServerPack.Server;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Created by arnob on 19/07/2017.
  * Main class for automated test which runs both server and client
+ * <p>
+ * Independent test iterations run concurrently, each with its own server on an ephemeral port, and wait for the
+ * completion of their clients instead of polling. Results are written in iteration order.
+ * <p>
+ * Only as many iterations run at a time as their busy threads (attacker clients and the server threads responding to
+ * them) fit on the cores, so the attack runtime of an iteration is measured as with sequential iterations and the
+ * rows stay comparable with earlier results.
+ * <p>
+ * By default the clients are connected to the server in memory, so the simulation does not pay for loopback TCP;
+ * {@code isInMemoryTransport = false} runs the same test over TCP sockets.
  */
 public class AutomatedTest {
     // ---------- Configurable Data (start) ---------- //
@@ -28,6 +45,10 @@ public class AutomatedTest {
 
     private static final String ipPrefix = "10.121.100.";
 
+    private static final int totalCores = Runtime.getRuntime().availableProcessors();
+    private static final int busyThreadsPerClient = 2;     // client thread and server thread responding to it
+    private static final boolean isInMemoryTransport = true;   // false for TCP sockets on ephemeral ports
+
     private static final double fixedAttackNoise = 0.5;
     private static final double minAttackNoise = 0.0;
     private static final double maxAttackNoise = 1.0;
@@ -43,7 +64,7 @@ public class AutomatedTest {
 
     public static void main(String[] args) {
         // show automatic test start message
-        System.out.println("Automatic Test started..........");
+        Log.info("Automatic Test started..........");
 
         // test attacker
         testAttacker();
@@ -52,13 +73,14 @@ public class AutomatedTest {
         testServer();
 
         // show automatic test end message
-        System.out.println("Automatic Test finished..........");
+        Log.info("Automatic Test finished..........");
+        Log.flush();
     }
 
 
     private static void testAttacker() {
         // show test message
-        System.out.println("Testing attacker");
+        Log.info("Testing attacker");
 
         // create file for print
         PrintWriter fileOut;
@@ -67,55 +89,65 @@ public class AutomatedTest {
             fileOut.println("AttackNoise,DomainFetched,AttackCoverage,AttackRuntime (msec),AttackSpeed (domain per msec)");
         } catch (FileNotFoundException e) {
             e.printStackTrace();
-            System.err.println("Automated test for attacker file cannot be created.");
+            Log.error("Automated test for attacker file cannot be created.");
             return;
         }
 
+        // run independent iterations concurrently (attack noises are chosen in iteration order)
+        ExecutorService iterationThreads = newIterationThreads(totalAttackers);
+        List<CompletableFuture<String>> results = new ArrayList<>(totalTestIterationAttacker);
         for (int it = 0; it < totalTestIterationAttacker; it++) {
-            // run server
-            Server server = new LowProfiling(fixedTotalSuspiciousRecordsForEachClient);
-            server.runServer();
-            waitForMoment(); // wait for server to be ready
-
-            // run attacker clients
-            Attacker[] attackers = new Attacker[totalAttackers];
-            for (int i = 0; i < totalAttackers; i++) {
-                Attacker attacker = new Attacker(ipPrefix + Integer.toString(i + 1),
-                        (minAttackNoise + (random.nextDouble() * attackNoiseRange)),
-                        true);
-                attacker.runClient();
-                attackers[i] = attacker;
-            }
-
-            // print result
-            final double domainCount = server.domainCount();
-            for (int i = 0; i < totalAttackers; i++) {
-                Attacker attacker = attackers[i];
-                if (!attacker.isFinished()) {
-                    i--;
-                    waitForMoment();
-                    continue;
-                }
-
-                int domainFetched = attacker.domainFetched();
-                fileOut.println(Double.toString(attacker.attackNoise()) + "," +
-                        Integer.toString(domainFetched) + "," +
-                        Double.toString((double) domainFetched / domainCount) + "," +
-                        Long.toString(attacker.attackRuntime()) + "," +
-                        Double.toString((double) domainFetched / attacker.attackRuntime()));
-            }
-
-            // stop server
-            server.stopServer();
+            double[] attackNoises = new double[totalAttackers];
+            for (int i = 0; i < totalAttackers; i++) attackNoises[i] = minAttackNoise + (random.nextDouble() * attackNoiseRange);
+            results.add(CompletableFuture.supplyAsync(() -> runAttackerIteration(attackNoises), iterationThreads));
         }
 
+        // print result in iteration order
+        for (CompletableFuture<String> result : results) fileOut.print(result.join());
+        iterationThreads.shutdown();
+
         // close test file
         fileOut.close();
     }
 
+    /**
+     * @return rows of the iteration, one for each attacker
+     */
+    private static String runAttackerIteration(double[] attackNoises) {
+        // run server on its own port (or in memory)
+        Server server = new LowProfiling(fixedTotalSuspiciousRecordsForEachClient);
+        int port = startServer(server);
+
+        // run attacker clients
+        Attacker[] attackers = new Attacker[totalAttackers];
+        CompletableFuture<?>[] finished = new CompletableFuture<?>[totalAttackers];
+        for (int i = 0; i < totalAttackers; i++) {
+            attackers[i] = new Attacker(ipPrefix + Integer.toString(i + 1), attackNoises[i], true);
+            finished[i] = startClient(attackers[i], server, port);
+        }
+        CompletableFuture.allOf(finished).join();
+
+        // print result
+        final double domainCount = server.domainCount();
+        StringBuilder rows = new StringBuilder();
+        for (Attacker attacker : attackers) {
+            int domainFetched = attacker.domainFetched();
+            rows.append(Double.toString(attacker.attackNoise())).append(",")
+                    .append(Integer.toString(domainFetched)).append(",")
+                    .append(Double.toString((double) domainFetched / domainCount)).append(",")
+                    .append(Long.toString(attacker.attackRuntime())).append(",")
+                    .append(Double.toString((double) domainFetched / attacker.attackRuntime()))
+                    .append(System.lineSeparator());
+        }
+
+        // stop server
+        server.stopServer();
+        return rows.toString();
+    }
+
     private static void testServer() {
         // show test message
-        System.out.println("Testing server");
+        Log.info("Testing server");
 
         // create file for print
         PrintWriter fileOut;
@@ -124,48 +156,75 @@ public class AutomatedTest {
             fileOut.println("TotalSuspiciousRecords,DomainFetched,AttackCoverage,AttackRuntime (msec),AttackSpeed (domain per msec)");
         } catch (FileNotFoundException e) {
             e.printStackTrace();
-            System.err.println("Automated test file for client cannot be created.");
+            Log.error("Automated test file for client cannot be created.");
             return;
         }
 
+        // run independent iterations concurrently (limiting values are chosen in iteration order)
+        ExecutorService iterationThreads = newIterationThreads(1);
+        List<CompletableFuture<String>> results = new ArrayList<>(totalTestIterationServer);
         for (int it = 0; it < totalTestIterationServer; it++) {
-            // run server
             final int totalSuspiciousRecordsForEachClient = minTotalSuspiciousRecordsForEachClient + random.nextInt(totalSuspiciousRecordsForEachClientRange);
-            Server server = new LowProfiling(totalSuspiciousRecordsForEachClient);
-            server.runServer();
-            waitForMoment(); // wait for server to be ready
-
-            // run attacker client
-            Attacker attacker = new Attacker(ipPrefix + "1", fixedAttackNoise, true);
-            attacker.runClient();
-
-            while (!attacker.isFinished()) {
-                waitForMoment();
-            }
-
-            // print result
-            final double domainCount = server.domainCount();
-            int domainFetched = attacker.domainFetched();
-            fileOut.println(Integer.toString(totalSuspiciousRecordsForEachClient) + "," +
-                    Integer.toString(domainFetched) + "," +
-                    Double.toString((double) domainFetched / domainCount) + "," +
-                    Long.toString(attacker.attackRuntime()) + "," +
-                    Double.toString((double) domainFetched / attacker.attackRuntime()));
-
-            // stop server
-            server.stopServer();
+            results.add(CompletableFuture.supplyAsync(() -> runServerIteration(totalSuspiciousRecordsForEachClient),
+                    iterationThreads));
         }
 
+        // print result in iteration order
+        for (CompletableFuture<String> result : results) fileOut.print(result.join());
+        iterationThreads.shutdown();
+
         // close test file
         fileOut.close();
     }
 
+    /**
+     * @return row of the iteration
+     */
+    private static String runServerIteration(int totalSuspiciousRecordsForEachClient) {
+        // run server on its own port (or in memory)
+        Server server = new LowProfiling(totalSuspiciousRecordsForEachClient);
+        int port = startServer(server);
+
+        // run attacker client
+        Attacker attacker = new Attacker(ipPrefix + "1", fixedAttackNoise, true);
+        startClient(attacker, server, port).join();
+
+        // print result
+        final double domainCount = server.domainCount();
+        int domainFetched = attacker.domainFetched();
+        String row = Integer.toString(totalSuspiciousRecordsForEachClient) + "," +
+                Integer.toString(domainFetched) + "," +
+                Double.toString((double) domainFetched / domainCount) + "," +
+                Long.toString(attacker.attackRuntime()) + "," +
+                Double.toString((double) domainFetched / attacker.attackRuntime()) + System.lineSeparator();
+
+        // stop server
+        server.stopServer();
+        return row;
+    }
 
-    private static void waitForMoment() {
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    /**
+     * @param clientsPerIteration the number of clients run at the same time by each iteration
+     * @return threads running as many iterations at a time as fit on the cores (at least one)
+     */
+    private static ExecutorService newIterationThreads(int clientsPerIteration) {
+        int parallelIterations = Math.max(1, totalCores / (clientsPerIteration * busyThreadsPerClient));
+        Log.info("Parallel iterations: " + Integer.toString(parallelIterations));
+        return Executors.newFixedThreadPool(parallelIterations);
+    }
+
+    /**
+     * @return port number of the server, or -1 if it is run in memory
+     */
+    private static int startServer(Server server) {
+        if (isInMemoryTransport) {
+            server.runInMemoryServer(Server.ExecutionMode.FIXED_THREAD_POOL);
+            return -1;
         }
+        return server.runServer(Server.ExecutionMode.FIXED_THREAD_POOL, 0).join();
+    }
+
+    private static CompletableFuture<Void> startClient(Client client, Server server, int port) {
+        return isInMemoryTransport ? client.runClient(server) : client.runClient(port);
     }
 }
@@ -7,7 +7,9 @@ import DNSSEC.ClientPack.Client;
  */
 public class ClientMain {
     public static void main(String[] args) {
+        //Log.setLevel(Log.Level.INFO);
         Client client = new Legitimate("10.121.100.5");
+        //Client client = new Legitimate("10.121.100.5", Client.Protocol.BINARY);
         //Client client = new Attacker("10.121.100.5", 0.0, false);
         client.runClient();
     }
@@ -0,0 +1,16 @@
+import DNSSEC.ServerPack.Security.NSEC;
+
+import java.io.File;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Main class for compiling pre-signed zone image offline
+ */
+public class CompileZoneMain {
+    public static void main(String[] args) {
+        // remove existing image so that the zone is signed again and a fresh image is written
+        //noinspection ResultOfMethodCallIgnored
+        new File("domain_ip.zone").delete();
+        new NSEC();
+    }
+}
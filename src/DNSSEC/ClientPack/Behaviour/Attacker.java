@@ -1,9 +1,13 @@
 package DNSSEC.ClientPack.Behaviour;
 
 import DNSSEC.ClientPack.Client;
+import DNSSEC.ClientPack.ServerConnection;
+import DNSSEC.Common.Log;
+import DNSSEC.Common.RSA_Cryptography;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Random;
 import java.util.Scanner;
@@ -17,10 +21,10 @@ public class Attacker extends Client {
 
     private static final String attackerFilename = "Attacker/attackerFile.txt";
 
-    private static final String attackStoppedMessage = "Server might have detected the attack or record might have reached to the end.";
+    static final String attackStoppedMessage = "Server might have detected the attack or record might have reached to the end.";
 
-    private static final char firstCharForAttacker = '0';
-    private static final char lastCharForAttacker = 'z';
+    static final char firstCharForAttacker = '0';
+    static final char lastCharForAttacker = 'z';
 
     // ---------- Configurable Data (end) ---------- //
 
@@ -37,7 +41,11 @@ public class Attacker extends Client {
 
 
     public Attacker(String clientIp, double attackNoise, boolean isAutomatedTest) {
-        super(clientIp);
+        this(clientIp, attackNoise, isAutomatedTest, Protocol.TEXT);
+    }
+
+    public Attacker(String clientIp, double attackNoise, boolean isAutomatedTest, Protocol protocol) {
+        super(clientIp, protocol);
         this.attackNoise = attackNoise;
         this.isAutomatedTest = isAutomatedTest;
     }
@@ -47,7 +55,7 @@ public class Attacker extends Client {
     }
 
     @Override
-    protected void request(Scanner in, PrintWriter out) {
+    protected void request(ServerConnection connection) throws IOException {
         startTime = System.currentTimeMillis();
 
         String domain;
@@ -57,6 +65,7 @@ public class Attacker extends Client {
         } else {
             // get domain name from console
             Scanner console_in = new Scanner(System.in);
+            Log.flush();
             System.out.println("Enter a non-existing domain to start attack: ");
             domain = console_in.nextLine();
         }
@@ -68,17 +77,22 @@ public class Attacker extends Client {
                 fileOut = new PrintWriter(new File(attackerFilename));
             } catch (FileNotFoundException e) {
                 e.printStackTrace();
-                System.err.println("Attacker's file cannot be created.");
+                Log.error("Attacker's file cannot be created.");
                 return;
             }
         }
 
         // send first non-existing domain request and receive server response
-        Legitimate.Result result = sendRequest(in, out, domain);
+        Legitimate.Result result = sendRequest(connection, domain);
 
         while (result != null) {
             if (!result.ip.isEmpty()) {
-                System.out.println("Unexpected valid IP address found and so attack stopped.");
+                Log.info("Unexpected valid IP address found and so attack stopped.");
+                return;
+            }
+            if (result.isHashedDenial) {
+                Log.info("NSEC3 received, the zone cannot be walked and so attack stopped.");
+                stopAttack(fileOut);
                 return;
             }
 
@@ -86,41 +100,46 @@ public class Attacker extends Client {
             domain = result.domainEnd;
 
             // send existing domain request and receive server response
-            result = sendRequest(in, out, domain);
+            result = sendRequest(connection, domain);
             if (result == null) {
                 stopAttack(fileOut);
                 return;
+            } else if (result.ip.isEmpty()) {
+                Log.info("End of NSEC range does not exist (minimally covering NSEC) and so attack stopped.");
+                stopAttack(fileOut);
+                return;
             } else {
                 if (!isAutomatedTest) {
                     // store domain info into attacker's file
-                    fileOut.println(domain + " " + result.ip + " " + result.signature);
+                    fileOut.println(domain + " " + result.ip + " " + RSA_Cryptography.toBase64(result.signature));
                     fileOut.println();
                 }
                 domainFetched++;
             }
 
             // depending on probability, send previous possible non-existing domain
-            if (shouldSendPreviousDomain()) sendRequest(in, out, previousString(domain));
+            if (shouldSendPreviousDomain()) sendRequest(connection, previousString(domain));
 
             // assign next possible non-existing domain
             domain = nextString(domain);
 
             // send next non-existing domain request and receive server response
-            result = sendRequest(in, out, domain);
+            result = sendRequest(connection, domain);
         }
 
         stopAttack(fileOut);
     }
 
 
-    private static Legitimate.Result sendRequest(Scanner in, PrintWriter out, String domain) {
-        Legitimate.Result result = Legitimate.requestCore(in, out, domain);
-        System.out.println();
+    private Legitimate.Result sendRequest(ServerConnection connection, String domain) throws IOException {
+        Legitimate.Result result = Legitimate.requestCore(connection, domain, isAsynchronousVerification(),
+                responseCache());
+        Log.debug("");
         return result;
     }
 
 
-    private static String nextString(String currentString) {
+    static String nextString(String currentString) {
         StringBuilder stringBuilder = new StringBuilder(currentString);
         int length = stringBuilder.length();
         char lastChar = stringBuilder.charAt(length - 1);
@@ -133,7 +152,7 @@ public class Attacker extends Client {
         return stringBuilder.toString();
     }
 
-    private static String previousString(String currentString) {
+    static String previousString(String currentString) {
         StringBuilder stringBuilder = new StringBuilder(currentString);
         int length = stringBuilder.length();
         char lastChar = stringBuilder.charAt(length - 1);
@@ -155,8 +174,8 @@ public class Attacker extends Client {
 
     private void stopAttack(PrintWriter fileOut) {
         if (!isAutomatedTest) fileOut.close();
-        System.out.println(attackStoppedMessage);
-        System.out.println();
+        Log.info(attackStoppedMessage);
+        Log.debug("");
         attackRuntime = System.currentTimeMillis() - startTime;
     }
 
@@ -1,14 +1,17 @@
 package DNSSEC.ClientPack.Behaviour;
 
 import DNSSEC.ClientPack.Client;
+import DNSSEC.ClientPack.Response;
+import DNSSEC.ClientPack.ResponseCache;
+import DNSSEC.ClientPack.ServerConnection;
+import DNSSEC.Common.Log;
+import DNSSEC.Common.NSEC3Hash;
+import DNSSEC.Common.RSA_Cryptography;
 import DNSSEC.ServerPack.Security.NSEC;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.IllegalBlockSizeException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.security.InvalidKeyException;
+import java.io.IOException;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by arnob on 21/05/2017.
@@ -19,128 +22,187 @@ public class Legitimate extends Client {
         super(clientIp);
     }
 
+    public Legitimate(String clientIp, Protocol protocol) {
+        super(clientIp, protocol);
+    }
+
     @Override
     protected void setupClient() {
     }
 
     @Override
-    protected void request(Scanner in, PrintWriter out) {
+    protected void request(ServerConnection connection) throws IOException {
         // get domain name from console
         Scanner console_in = new Scanner(System.in);
+        Log.flush();
         System.out.println("Enter a domain for request: ");
         String domain = console_in.nextLine();
 
         // send domain request and receive server response
-        requestCore(in, out, domain);
+        requestCore(connection, domain, isAsynchronousVerification(), responseCache());
     }
 
     /**
+     * @param responseCache cache of verified responses (answered locally if the domain is found), or {@code null}
      * @return {@code Result} object if IP address or NSEC received, otherwise {@code null}
      */
-    static Result requestCore(Scanner in, PrintWriter out, String domain) {
+    static Result requestCore(ServerConnection connection, String domain, boolean isAsynchronousVerification,
+                              ResponseCache responseCache) throws IOException {
+        // answer from cached answer or NSEC range if possible
+        if (responseCache != null) {
+            Response cachedResponse = responseCache.lookup(domain);
+            if (cachedResponse != null) {
+                Log.log(Log.Level.DEBUG, "Cached response for: \"", domain, "\"");
+                return cachedResult(domain, cachedResponse);
+            }
+        }
+
         // sending request to server
-        out.println(domain);
-        System.out.println("Request sent for: \"" + domain + "\"");
+        connection.sendQuery(domain);
+        connection.flush();
+        Log.log(Log.Level.DEBUG, "Request sent for: \"", domain, "\"");
+
+        // receiving server response
+        Response response = connection.readResponse();
+        Result result = readResult(domain, response, isAsynchronousVerification);
+
+        // cache only verified responses
+        if (responseCache != null && result != null) {
+            result.verification.thenAccept(isVerified -> {
+                if (isVerified) responseCache.put(domain, response);
+            });
+        }
+        return result;
+    }
 
-        // parsing server response
-        String responseWholeLine = in.nextLine();
-        String[] response = responseWholeLine.split(" ");
+    /**
+     * @param response verified response of an earlier request
+     */
+    private static Result cachedResult(String domain, Response response) {
+        Result result = new Result(response.type == Response.Type.ANSWER ? response.domain : domain);
+        result.ip = response.ip;
+        result.domainStart = response.domainStart;
+        result.domainEnd = response.domainEnd;
+        result.signature = response.signature;
+        result.verification = CompletableFuture.completedFuture(true);
+        return result;
+    }
 
-        // check if server message received instead of IP address or NSEC
-        if (response.length > 3) {
-            System.out.println("Server message: " + responseWholeLine);
+    /**
+     * This method verifies and prints a server response of the requested domain.
+     * <p>
+     * If verification is asynchronous, the result is returned before its signature is verified
+     * (see {@code Result.verification}).
+     *
+     * @param response response of the domain, or {@code null} if server closed the connection
+     * @return {@code Result} object if IP address, NSEC or NSEC3 received, otherwise {@code null}
+     */
+    static Result readResult(String domain, Response response, boolean isAsynchronousVerification) {
+        if (response == null) {
+            Log.error("Connection closed by DNS server.");
             return null;
         }
 
-        // check if NSEC received
-        if (response.length == 3) {
-            String header = response[0];
-            System.out.println("Header: " + header);
+        switch (response.type) {
+            case MESSAGE:
+                // server message received instead of IP address or NSEC
+                Log.debug("Server message: ", response.message);
+                return null;
 
-            if (header.equals(NSEC.header)) {
-                String[] domainRange = response[1].split(",");
-                if (domainRange.length != 2) {
-                    System.err.println("Invalid response from DNS server.");
-                    return null;
-                }
+            case NSEC: {
+                Log.debug("Header: ", NSEC.header);
 
                 // store received NSEC
                 Result result = new Result(domain);
-                result.domainStart = domainRange[0];
-                result.domainEnd = domainRange[1];
-                result.signature = response[2];
-                result.isVerified = isVerified(domain, result.domainStart, result.domainEnd, result.signature);
+                result.domainStart = response.domainStart;
+                result.domainEnd = response.domainEnd;
+                result.signature = response.signature;
+                result.verification = isAsynchronousVerification ?
+                        verifier.verifyAsync(domain, result.domainStart, result.domainEnd, result.signature) :
+                        CompletableFuture.completedFuture(
+                                verifier.isVerified(domain, result.domainStart, result.domainEnd, result.signature));
 
                 // print received NSEC
-                System.out.println("Requested non-existing domain: " + domain);
-                System.out.println("Domain range start: " + result.domainStart);
-                System.out.println("Domain range end: " + result.domainEnd);
-                System.out.println("Signature: " + result.signature);
-                System.out.println("IsVerified: " + Boolean.toString(result.isVerified));
+                if (Log.isEnabled(Log.Level.DEBUG)) {
+                    Log.debug("Requested non-existing domain: ", domain);
+                    Log.debug("Domain range start: ", result.domainStart);
+                    Log.debug("Domain range end: ", result.domainEnd);
+                    Log.debug("Signature: ", RSA_Cryptography.toBase64(result.signature));
+                    logVerification(result);
+                }
 
                 // successful NSEC received
                 return result;
             }
-        }
 
-        // check if invalid response received
-        if (response.length != 2) {
-            System.err.println("Invalid response from DNS server.");
-            return null;
-        }
+            case NSEC3: {
+                Log.debug("Header: ", NSEC3Hash.header);
 
-        // IP address received for the requested domain
-        System.out.println("Reply from Server:");
-        String[] domainIpResponse = response[0].split(",");
-        if (domainIpResponse.length != 2) {
-            System.err.println("Invalid response from DNS server.");
-            return null;
-        }
+                // store received NSEC3 (range of hashes, so the neighbouring domains are unknown)
+                Result result = new Result(domain);
+                result.domainStart = response.domainStart;
+                result.domainEnd = response.domainEnd;
+                result.signature = response.signature;
+                result.isHashedDenial = true;
+                result.verification = isAsynchronousVerification ?
+                        verifier.verifyAsync(domain, result.domainStart, result.domainEnd, response.salt,
+                                response.iterations, result.signature) :
+                        CompletableFuture.completedFuture(verifier.isVerified(domain, result.domainStart,
+                                result.domainEnd, response.salt, response.iterations, result.signature));
+
+                // print received NSEC3
+                if (Log.isEnabled(Log.Level.DEBUG)) {
+                    Log.debug("Requested non-existing domain: ", domain);
+                    Log.debug("Hash parameters: ", Integer.toString(response.iterations) + " iterations, salt " +
+                            NSEC3Hash.saltString(response.salt));
+                    Log.debug("Hash range start: ", result.domainStart);
+                    Log.debug("Hash range end: ", result.domainEnd);
+                    Log.debug("Signature: ", RSA_Cryptography.toBase64(result.signature));
+                    logVerification(result);
+                }
 
-        // store received IP address
-        Result result = new Result(domainIpResponse[0]);
-        result.ip = domainIpResponse[1];
-        result.signature = response[1];
-        result.isVerified = isVerified(domain, result.ip, result.signature);
+                // successful NSEC3 received
+                return result;
+            }
 
-        // print detailed info for the received IP address
-        System.out.println("Domain: " + result.domain);
-        System.out.println("IP: " + result.ip);
-        System.out.println("Signature: " + result.signature);
-        System.out.println("IsVerified: " + Boolean.toString(result.isVerified));
+            case ANSWER: {
+                // IP address received for the requested domain
+                Log.debug("Reply from Server:");
+
+                // store received IP address
+                Result result = new Result(response.domain);
+                result.ip = response.ip;
+                result.signature = response.signature;
+                result.verification = isAsynchronousVerification ?
+                        verifier.verifyAsync(domain, result.ip, result.signature) :
+                        CompletableFuture.completedFuture(verifier.isVerified(domain, result.ip, result.signature));
+
+                // print detailed info for the received IP address
+                if (Log.isEnabled(Log.Level.DEBUG)) {
+                    Log.debug("Domain: ", result.domain);
+                    Log.debug("IP: ", result.ip);
+                    Log.debug("Signature: ", RSA_Cryptography.toBase64(result.signature));
+                    logVerification(result);
+                }
 
-        // successful IP address received
-        return result;
-    }
+                // successful IP address received
+                return result;
+            }
 
-    /**
-     * This method is used in existing domain response verification.
-     */
-    private synchronized static boolean isVerified(String domain, String ip, String signature) {
-        String message = domain + "," + ip;
-        try {
-            return Integer.toString(message.hashCode()).equals(rsa.getHashFromSignature(signature, publicKey));
-        } catch (InvalidKeyException | UnsupportedEncodingException | BadPaddingException | IllegalBlockSizeException e) {
-            e.printStackTrace();
-            return false;
+            default:
+                // invalid response received
+                Log.error("Invalid response from DNS server.");
+                return null;
         }
     }
 
-    /**
-     * This method is used in non-existing domain response verification.
-     */
-    private synchronized static boolean isVerified(String domain, String domainRangeStart, String domainRangeEnd, String signature) {
-        // check if domain in the range
-        if (domain.compareTo(domainRangeStart) < 0 || domain.compareTo(domainRangeEnd) > 0)
-            return false;
-
-        // check signature against hashcode
-        String message = domainRangeStart + "," + domainRangeEnd;
-        try {
-            return Integer.toString(message.hashCode()).equals(rsa.getHashFromSignature(signature, publicKey));
-        } catch (InvalidKeyException | UnsupportedEncodingException | BadPaddingException | IllegalBlockSizeException e) {
-            e.printStackTrace();
-            return false;
+    private static void logVerification(Result result) {
+        if (result.verification.isDone()) {
+            Log.debug("IsVerified: ", Boolean.toString(result.isVerified()));
+        } else {
+            // printed when the verification stage finishes
+            result.verification.thenAccept(isVerified ->
+                    Log.debug("IsVerified (" + result.domain + "): ", Boolean.toString(isVerified)));
         }
     }
 
@@ -155,11 +217,19 @@ public class Legitimate extends Client {
         public String domainStart = "";
         public String domainEnd = "";
 
-        public String signature = "";
-        public boolean isVerified = false;
+        public byte[] signature = new byte[0];
+        public boolean isHashedDenial = false;  // NSEC3 received, domainStart and domainEnd are hashes
+        public CompletableFuture<Boolean> verification = CompletableFuture.completedFuture(false);
 
         public Result(String domain) {
             this.domain = domain;
         }
+
+        /**
+         * This method waits for the verification if it is asynchronous.
+         */
+        public boolean isVerified() {
+            return verification.join();
+        }
     }
 }
@@ -0,0 +1,249 @@
+package DNSSEC.ClientPack.Behaviour;
+
+import DNSSEC.ClientPack.Client;
+import DNSSEC.ClientPack.PipelinedConnection;
+import DNSSEC.ClientPack.Response;
+import DNSSEC.ClientPack.ServerConnection;
+import DNSSEC.Common.LatencyHistogram;
+import DNSSEC.Common.Log;
+import DNSSEC.ServerPack.Security.NSEC;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Implementation of load generator client which sends a mix of queries over a single connection for a fixed duration
+ * <p>
+ * In closed loop ({@code targetQps <= 0}) the next query is sent as soon as the previous one is answered, so the
+ * throughput of the server is measured. In open loop queries are sent by a fixed schedule at {@code targetQps} with
+ * pipelining, and the latency of every query is measured from the time it should have been sent, not from the time it
+ * was sent: if the server (or the limit of queries in flight) delays sending, the delay is counted in the latency
+ * instead of being hidden (coordinated omission).
+ * <p>
+ * Several load generators (one for each connection) may record into the same histogram.
+ */
+public class LoadGenerator extends Client {
+    private final Random random = new Random();
+
+    private final QueryMix queryMix;
+    private final double targetQps;    // per connection, closed loop if not positive
+    private final long durationMillis;
+    private final LatencyHistogram latency;
+
+    // next domain of the zone walk, moved forward by every walking response
+    private volatile String walkDomain = String.valueOf(Attacker.firstCharForAttacker);
+
+    private final LongAdder queriesSent = new LongAdder();
+    private final LongAdder answers = new LongAdder();
+    private final LongAdder denials = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private volatile long elapsedNanos = 0L;
+
+
+    /**
+     * @param targetQps queries per second of this connection, or 0 for closed loop
+     * @param latency   histogram which receives the latency of every answered query
+     */
+    public LoadGenerator(String clientIp, Protocol protocol, QueryMix queryMix, double targetQps, long durationMillis,
+                         LatencyHistogram latency) {
+        super(clientIp, protocol);
+        this.queryMix = queryMix;
+        this.targetQps = targetQps;
+        this.durationMillis = durationMillis;
+        this.latency = latency;
+    }
+
+    @Override
+    protected void setupClient() {
+    }
+
+    @Override
+    protected void request(ServerConnection connection) throws IOException {
+        long startTime = System.nanoTime();
+        try {
+            if (targetQps > 0) runOpenLoop(pipeline(connection), startTime);
+            else runClosedLoop(connection, startTime);
+        } finally {
+            elapsedNanos = System.nanoTime() - startTime;
+        }
+    }
+
+    private void runClosedLoop(ServerConnection connection, long startTime) throws IOException {
+        long endTime = startTime + durationMillis * 1000000L;
+        while (System.nanoTime() < endTime) {
+            Query query = nextQuery();
+            long sendTime = System.nanoTime();
+            connection.sendQuery(query.domain);
+            connection.flush();
+            queriesSent.increment();
+
+            Response response = connection.readResponse();
+            if (response == null) {
+                failures.increment();
+                Log.error("Connection closed by DNS server.");
+                return;
+            }
+            latency.record(System.nanoTime() - sendTime);
+            receive(query, response);
+        }
+    }
+
+    private void runOpenLoop(PipelinedConnection pipeline, long startTime) throws IOException {
+        long interval = (long) (1e9 / targetQps);
+        long endTime = startTime + durationMillis * 1000000L;
+
+        CompletableFuture<?> lastQuery = CompletableFuture.completedFuture(null);
+        for (long i = 0; ; i++) {
+            // wait for the scheduled time of the query (never skipped, even if the schedule is late)
+            long intendedTime = startTime + i * interval;
+            if (intendedTime >= endTime) break;
+            long waitTime;
+            while ((waitTime = intendedTime - System.nanoTime()) > 0) LockSupport.parkNanos(waitTime);
+
+            Query query = nextQuery();
+            queriesSent.increment();
+            lastQuery = pipeline.query(query.domain).whenComplete((response, failure) -> {
+                if (failure != null) {
+                    failures.increment();
+                    return;
+                }
+                latency.record(System.nanoTime() - intendedTime);
+                receive(query, response);
+            });
+        }
+
+        // responses are received in order, so the last one is received after all others
+        try {
+            lastQuery.join();
+        } catch (RuntimeException e) {
+            Log.error("Connection closed by DNS server.");
+        }
+    }
+
+    private Query nextQuery() {
+        double choice = random.nextDouble() * queryMix.totalWeight;
+        List<String> existingDomains = queryMix.existingDomains;
+        if (choice < queryMix.existingWeight) {
+            return new Query(existingDomains.get(random.nextInt(existingDomains.size())), QueryType.EXISTING);
+        }
+        if (choice < queryMix.existingWeight + queryMix.nonExistingWeight) {
+            return new Query(existingDomains.get(random.nextInt(existingDomains.size())) + "-" +
+                    Integer.toString(random.nextInt(Integer.MAX_VALUE), 36), QueryType.NON_EXISTING);
+        }
+        return new Query(walkDomain, QueryType.WALKING);
+    }
+
+    private void receive(Query query, Response response) {
+        switch (response.type) {
+            case ANSWER:
+                answers.increment();
+                if (query.type == QueryType.WALKING) walkDomain = Attacker.nextString(response.domain);
+                break;
+            case NSEC:
+                denials.increment();
+                if (query.type == QueryType.WALKING) {
+                    // restart the walk at the end of zone
+                    walkDomain = response.domainEnd.equals(NSEC.endDomainBound) ?
+                            String.valueOf(Attacker.firstCharForAttacker) : response.domainEnd;
+                }
+                break;
+            case NSEC3:
+                denials.increment();
+                break;
+            default:
+                messages.increment();
+                if (query.type == QueryType.WALKING) walkDomain = String.valueOf(Attacker.firstCharForAttacker);
+                break;
+        }
+    }
+
+
+    public long queriesSent() {
+        return queriesSent.sum();
+    }
+
+    /**
+     * @return the number of answers of existing domains
+     */
+    public long answers() {
+        return answers.sum();
+    }
+
+    /**
+     * @return the number of NSEC and NSEC3 responses
+     */
+    public long denials() {
+        return denials.sum();
+    }
+
+    /**
+     * @return the number of server messages (eg. blocked client) and invalid responses
+     */
+    public long messages() {
+        return messages.sum();
+    }
+
+    /**
+     * @return the number of queries which were not answered because the connection was closed
+     */
+    public long failures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return elapsed time of sending queries and receiving their responses in nanoseconds
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double targetQps() {
+        return targetQps;
+    }
+
+
+    /**
+     * Relative weights of existing domain, non-existing domain and zone walking queries
+     */
+    public static class QueryMix {
+        final List<String> existingDomains;
+        final double existingWeight;
+        final double nonExistingWeight;
+        final double totalWeight;
+
+        /**
+         * @param existingDomains domains which are queried as existing domains (and changed into non-existing domains)
+         */
+        public QueryMix(List<String> existingDomains, double existingWeight, double nonExistingWeight, double walkingWeight) {
+            if (existingDomains.isEmpty()) throw new IllegalArgumentException("Existing domains must not be empty.");
+            if (existingWeight < 0 || nonExistingWeight < 0 || walkingWeight < 0 ||
+                    existingWeight + nonExistingWeight + walkingWeight <= 0)
+                throw new IllegalArgumentException("Weights must not be negative and must not all be 0.");
+            this.existingDomains = existingDomains;
+            this.existingWeight = existingWeight;
+            this.nonExistingWeight = nonExistingWeight;
+            this.totalWeight = existingWeight + nonExistingWeight + walkingWeight;
+        }
+    }
+
+    private enum QueryType {
+        EXISTING, NON_EXISTING, WALKING
+    }
+
+    private static class Query {
+        final String domain;
+        final QueryType type;
+
+        Query(String domain, QueryType type) {
+            this.domain = domain;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package DNSSEC.ClientPack.Behaviour;
+
+import DNSSEC.ClientPack.Client;
+import DNSSEC.ClientPack.PipelinedConnection;
+import DNSSEC.ClientPack.Response;
+import DNSSEC.ClientPack.ServerConnection;
+import DNSSEC.Common.Log;
+import DNSSEC.ServerPack.Security.NSEC;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Implementation of attacker client which walks the zone with pipelined queries
+ * <p>
+ * The namespace is split by the first character into {@code totalWalks} independent walks, and in every walk the next
+ * non-existing domain is sent together with the existing domain found by the previous NSEC response, so many queries
+ * are in flight on a single connection.
+ */
+public class PipelinedAttacker extends Client {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int defaultTotalWalks = 4;
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private static final Random random = new Random();
+
+    private final Set<String> fetchedDomains = ConcurrentHashMap.newKeySet();
+
+    // queries of existing domains, which are not waited for by their walks
+    private final Queue<CompletableFuture<?>> domainQueries = new ConcurrentLinkedQueue<>();
+
+    private long startTime; // start time of attack
+    private volatile long attackRuntime = 0L; // attack runtime in milliseconds
+
+    private final double attackNoise; // attack noise so that DNS server hardly detect the attack
+    private final int totalWalks;
+
+
+    public PipelinedAttacker(String clientIp, double attackNoise) {
+        this(clientIp, attackNoise, defaultTotalWalks, Protocol.TEXT);
+    }
+
+    public PipelinedAttacker(String clientIp, double attackNoise, int totalWalks, Protocol protocol) {
+        super(clientIp, protocol);
+        this.attackNoise = attackNoise;
+        this.totalWalks = totalWalks;
+    }
+
+    @Override
+    protected void setupClient() {
+    }
+
+    @Override
+    protected void request(ServerConnection connection) throws IOException {
+        startTime = System.currentTimeMillis();
+        PipelinedConnection pipeline = pipeline(connection);
+
+        // start independent walks, each one stops at the first character of the next walk
+        int charRange = Attacker.lastCharForAttacker - Attacker.firstCharForAttacker + 1;
+        CompletableFuture<?>[] walks = new CompletableFuture<?>[totalWalks];
+        for (int i = 0; i < totalWalks; i++) {
+            String firstDomain = String.valueOf((char) (Attacker.firstCharForAttacker + (i * charRange / totalWalks)));
+            String limit = (i + 1 < totalWalks) ?
+                    String.valueOf((char) (Attacker.firstCharForAttacker + ((i + 1) * charRange / totalWalks))) : null;
+            walks[i] = new Walk(pipeline, limit).start(firstDomain);
+        }
+
+        // wait for all walks and then for the remaining existing domain queries
+        try {
+            CompletableFuture.allOf(walks).join();
+            CompletableFuture.allOf(domainQueries.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Log.error("Connection closed by DNS server.");
+        }
+
+        Log.info(Attacker.attackStoppedMessage);
+        attackRuntime = System.currentTimeMillis() - startTime;
+    }
+
+
+    private boolean shouldSendPreviousDomain() {
+        return (random.nextDouble() < attackNoise);
+    }
+
+
+    public int domainFetched() {
+        return fetchedDomains.size();
+    }
+
+    public long attackRuntime() {
+        return attackRuntime;
+    }
+
+    public double attackNoise() {
+        return attackNoise;
+    }
+
+
+    /**
+     * A chain of non-existing domain queries, each one sent after the NSEC response of the previous one
+     */
+    private class Walk {
+        private final PipelinedConnection pipeline;
+        private final String limit;     // walk stops at this domain (null for the end of zone)
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+        Walk(PipelinedConnection pipeline, String limit) {
+            this.pipeline = pipeline;
+            this.limit = limit;
+        }
+
+        CompletableFuture<Void> start(String firstDomain) {
+            sendNonExistingDomain(firstDomain);
+            return finished;
+        }
+
+        private void sendNonExistingDomain(String domain) {
+            if (finished.isDone()) return;
+            query(domain).whenComplete((response, failure) -> {
+                if (failure != null) finished.complete(null);
+                else receiveNonExistingDomain(domain, response);
+            });
+        }
+
+        private void receiveNonExistingDomain(String domain, Response response) {
+            Legitimate.Result result = Legitimate.readResult(domain, response, isAsynchronousVerification());
+            if (result == null || result.isHashedDenial) {
+                // server might have detected the attack (or sent NSEC3 which cannot be walked)
+                finished.complete(null);
+                return;
+            }
+
+            // existing domain may be guessed by chance
+            String nextDomain;
+            if (!result.ip.isEmpty()) {
+                fetchedDomains.add(result.domain);
+                nextDomain = domain;
+            } else {
+                nextDomain = result.domainEnd;
+                if (nextDomain.equals(NSEC.endDomainBound) || isBeyondLimit(nextDomain)) {
+                    finished.complete(null);
+                    return;
+                }
+
+                // send existing domain request without waiting for it
+                String existingDomain = nextDomain;
+                domainQueries.add(query(existingDomain).thenAccept(existingResponse -> {
+                    Legitimate.Result existingResult = Legitimate.readResult(existingDomain, existingResponse,
+                            isAsynchronousVerification());
+                    if (existingResult != null && !existingResult.ip.isEmpty()) fetchedDomains.add(existingDomain);
+                    else if (existingResult != null) finished.complete(null);  // minimally covering NSEC cannot be walked
+                }));
+
+                // depending on probability, send previous possible non-existing domain
+                if (shouldSendPreviousDomain()) domainQueries.add(query(Attacker.previousString(existingDomain)));
+            }
+
+            // send next possible non-existing domain
+            nextDomain = Attacker.nextString(nextDomain);
+            if (isBeyondLimit(nextDomain)) finished.complete(null);
+            else sendNonExistingDomain(nextDomain);
+        }
+
+        private boolean isBeyondLimit(String domain) {
+            return limit != null && domain.compareTo(limit) >= 0;
+        }
+
+        private CompletableFuture<Response> query(String domain) {
+            try {
+                return pipeline.query(domain);
+            } catch (IOException e) {
+                CompletableFuture<Response> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package DNSSEC.ClientPack;
+
+import DNSSEC.Common.BinaryProtocol;
+import DNSSEC.ServerPack.ZoneUpdate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Length-prefixed binary protocol with raw signature bytes and coalesced flushes
+ */
+class BinaryServerConnection extends ServerConnection {
+    private final BinaryProtocol.FrameReader reader;
+    private final BinaryProtocol.FrameWriter writer;
+
+    private int requestId = 0;
+
+
+    BinaryServerConnection(InputStream inputStream, OutputStream outputStream, String clientIp) throws IOException {
+        reader = new BinaryProtocol.FrameReader(inputStream);
+        writer = new BinaryProtocol.FrameWriter(outputStream);
+
+        // send magic and client IP address
+        writer.writeRaw(BinaryProtocol.magic);
+        ByteBuffer buffer = writer.beginFrame(BinaryProtocol.HELLO, requestId, BinaryProtocol.maxStringLength(clientIp));
+        BinaryProtocol.putString(buffer, clientIp);
+        writer.endFrame();
+        writer.flush();
+
+        // wait for server acknowledgement
+        ByteBuffer frame = reader.readFrame();
+        if (frame == null || frame.get() != BinaryProtocol.HELLO)
+            throw new IOException("Server does not support binary protocol.");
+    }
+
+    @Override
+    public int sendQuery(String domain) throws IOException {
+        ByteBuffer buffer = writer.beginFrame(BinaryProtocol.QUERY, ++requestId, BinaryProtocol.maxStringLength(domain));
+        BinaryProtocol.putString(buffer, domain);
+        writer.endFrame();
+        return requestId;
+    }
+
+    @Override
+    public int sendUpdate(ZoneUpdate update) throws IOException {
+        int maxBodyLength = 1 + BinaryProtocol.maxStringLength(update.domain) + BinaryProtocol.maxStringLength(update.ip);
+        encodeUpdate(writer.beginFrame(BinaryProtocol.UPDATE, ++requestId, maxBodyLength), update);
+        writer.endFrame();
+        return requestId;
+    }
+
+    static void encodeUpdate(ByteBuffer buffer, ZoneUpdate update) {
+        buffer.put((byte) update.type.ordinal());
+        BinaryProtocol.putString(buffer, update.domain);
+        BinaryProtocol.putString(buffer, update.ip);
+    }
+
+    @Override
+    public Response readResponse() throws IOException {
+        ByteBuffer frame = reader.readFrame();
+        if (frame == null) return null;
+        return decode(frame);
+    }
+
+    /**
+     * @param frame buffer positioned at the frame type
+     */
+    static Response decode(ByteBuffer frame) {
+        byte type = frame.get();
+        int responseRequestId = frame.getInt();
+
+        Response response;
+        switch (type) {
+            case BinaryProtocol.ANSWER:
+                response = new Response(Response.Type.ANSWER);
+                response.domain = BinaryProtocol.getString(frame);
+                response.ip = BinaryProtocol.getString(frame);
+                response.signature = BinaryProtocol.getBytes(frame);
+                break;
+            case BinaryProtocol.NSEC:
+                response = new Response(Response.Type.NSEC);
+                response.domainStart = BinaryProtocol.getString(frame);
+                response.domainEnd = BinaryProtocol.getString(frame);
+                response.signature = BinaryProtocol.getBytes(frame);
+                break;
+            case BinaryProtocol.NSEC3:
+                response = new Response(Response.Type.NSEC3);
+                response.domainStart = BinaryProtocol.getString(frame);
+                response.domainEnd = BinaryProtocol.getString(frame);
+                response.signature = BinaryProtocol.getBytes(frame);
+                response.salt = BinaryProtocol.getBytes(frame);
+                response.iterations = frame.getShort() & 0xFFFF;
+                break;
+            case BinaryProtocol.MESSAGE:
+                response = new Response(Response.Type.MESSAGE);
+                response.message = BinaryProtocol.getString(frame);
+                break;
+            default:
+                response = new Response(Response.Type.INVALID);
+                break;
+        }
+        response.requestId = responseRequestId;
+        return response;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
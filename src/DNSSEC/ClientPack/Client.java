@@ -1,18 +1,20 @@
 package DNSSEC.ClientPack;
 
-import DNSSEC.Common.RSA_Cryptography;
+import DNSSEC.Common.Log;
+import DNSSEC.Common.SignatureAlgorithm;
+import DNSSEC.Common.SocketTransport;
+import DNSSEC.Common.Transport;
 import DNSSEC.ServerPack.Server;
 
-import javax.crypto.NoSuchPaddingException;
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.DatagramChannel;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by arnob on 21/05/2017.
@@ -23,36 +25,52 @@ public abstract class Client {
 
     public static final String serverIp = "127.0.0.1";
 
+    public static final int defaultMaxOutstandingRequests = 16;  // for pipelined queries
+
     // ---------- Configurable Data (end) ---------- //
 
 
     protected String clientIp;
 
-    protected static RSA_Cryptography rsa;
     protected static PublicKey publicKey = null;
+    protected static ResponseVerifier verifier = null;
+
+    private final Protocol protocol;
 
-    private Socket socket;
-    private Scanner in;
-    private PrintWriter out;
+    private Closeable socket;
 
     private volatile boolean isFinished = false;
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+    private int maxOutstandingRequests = defaultMaxOutstandingRequests;
+
+    private boolean isAsynchronousVerification = false;
+
+    private ResponseCache responseCache = null;
 
 
     public Client(String clientIp) {
+        this(clientIp, Protocol.TEXT);
+    }
+
+    public Client(String clientIp, Protocol protocol) {
         this.clientIp = clientIp;
+        this.protocol = protocol;
         readClientData();
         setupClient();
     }
 
-    private void readClientData() {
+    // clients may be created concurrently, so the public key is read only once
+    private static synchronized void readClientData() {
         // check if already initialized
-        if (publicKey != null) return;
+        if (verifier != null) return;
 
-        // read RSA public key
+        // read public key of the signature algorithm
         try {
-            rsa = new RSA_Cryptography();
-            publicKey = rsa.getPublic(Server.rsa_Folder + Server.publicKeyFilename);
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeySpecException | IOException e) {
+            SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.configured();
+            publicKey = signatureAlgorithm.readPublicKey(signatureAlgorithm.keyFolder + Server.publicKeyFilename);
+            verifier = new ResponseVerifier(signatureAlgorithm, publicKey);
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException | IOException e) {
             e.printStackTrace();
         }
     }
@@ -62,42 +80,88 @@ public abstract class Client {
     /**
      * This method runs client in a new thread.
      * There is no {@code stopClient} method because client with all sockets is automatically terminated
-     * after executing {@code request(Scanner in, PrintWriter out, Socket socket)}.
+     * after executing {@code request(ServerConnection connection)}.
      */
-    public final void runClient() {
-        try {
-            socket = new Socket(serverIp, Server.port);
-            in = new Scanner(new BufferedReader(new InputStreamReader(socket.getInputStream())));
-            out = new PrintWriter(socket.getOutputStream(), true);
-            new Thread(() -> {
-                // send client IP address
-                out.println(clientIp);
-                // print server IP address
-                Server.printLine();
-                System.out.println("Request to server: " + serverIp);
-                Server.printLine();
-
-                // send client request
-                request(in, out);
-
-                // print ending lines
-                Server.printLine();
-                System.out.println();
-                try {
-                    socket.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+    public final CompletableFuture<Void> runClient() {
+        return runClient(Server.port);
+    }
 
-                // change isFinished flag
-                isFinished = true;
-            }).start();
+    /**
+     * @param serverPort port number of the server (eg. ephemeral port returned by {@code Server.runServer})
+     * @return future completed when the client is finished, so that it need not be polled by {@link #isFinished()}
+     */
+    public final CompletableFuture<Void> runClient(int serverPort) {
+        try {
+            if (protocol == Protocol.UDP) {
+                DatagramChannel channel = DatagramChannel.open();
+                channel.connect(new InetSocketAddress(serverIp, serverPort));
+                socket = channel;
+                startClientThread(new DatagramServerConnection(channel));
+            } else {
+                socket = new SocketTransport(new Socket(serverIp, serverPort));
+                startClientThread(null);
+            }
         } catch (IOException e) {
             e.printStackTrace();
             System.exit(-100);  // fatal error, so terminate client
         }
 
-        System.out.println("Client started.");
+        Log.info("Client started.");
+        return finished;
+    }
+
+    /**
+     * This method runs client over an in-memory connection to a server in the same JVM, so no socket or network stack
+     * is involved (eg. simulations of automated test). The server must be running (see {@link Server#runInMemoryServer}).
+     *
+     * @return future completed when the client is finished
+     */
+    public final CompletableFuture<Void> runClient(Server server) {
+        if (protocol == Protocol.UDP) throw new IllegalArgumentException("UDP client cannot be connected in memory.");
+        socket = server.connectInMemory();
+        startClientThread(null);
+
+        Log.info("Client started (in memory).");
+        return finished;
+    }
+
+    /**
+     * @param connection connection of a datagram socket, or {@code null} to open the connection on the transport
+     *                   in client thread (because binary protocol waits for server acknowledgement)
+     */
+    private void startClientThread(ServerConnection connection) {
+        new Thread(() -> {
+            try {
+                // send client IP address (and negotiate protocol)
+                ServerConnection serverConnection = connection;
+                if (serverConnection == null) {
+                    Transport transport = (Transport) socket;
+                    serverConnection = ServerConnection.open(transport.inputStream(), transport.outputStream(), protocol, clientIp);
+                }
+                // print server IP address
+                Server.printLine();
+                Log.debug("Request to server: ", serverIp);
+                Server.printLine();
+
+                // send client request
+                request(serverConnection);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+
+            // print ending lines
+            Server.printLine();
+            Log.debug("");
+            try {
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            // change isFinished flag
+            isFinished = true;
+            finished.complete(null);
+        }).start();
     }
 
     /**
@@ -105,7 +169,52 @@ public abstract class Client {
      * It also incorporates client's behaviour (eg. legitimate or attacker client).
      * It is not needed to close socket after request because it is already done by {@code Client}.
      */
-    protected abstract void request(Scanner in, PrintWriter out);
+    protected abstract void request(ServerConnection connection) throws IOException;
+
+    /**
+     * This method starts pipelined queries over the connection: queries are sent without waiting for earlier responses
+     * and answered by futures. The connection must not be used directly afterwards.
+     */
+    protected final PipelinedConnection pipeline(ServerConnection connection) {
+        return new PipelinedConnection(connection, maxOutstandingRequests);
+    }
+
+    /**
+     * This method limits the number of pipelined queries in flight. It must be called before running the client.
+     */
+    public final void setMaxOutstandingRequests(int maxOutstandingRequests) {
+        if (maxOutstandingRequests < 1) throw new IllegalArgumentException("At least one request must be allowed.");
+        this.maxOutstandingRequests = maxOutstandingRequests;
+    }
+
+    /**
+     * This method moves signature verification off the thread reading responses: results are returned before their
+     * signatures are verified. It must be called before running the client.
+     */
+    public final void setAsynchronousVerification(boolean isAsynchronousVerification) {
+        this.isAsynchronousVerification = isAsynchronousVerification;
+    }
+
+    protected final boolean isAsynchronousVerification() {
+        return isAsynchronousVerification;
+    }
+
+    /**
+     * This method lets the client answer queries from verified responses it received before (the cache may be shared
+     * by several clients). It must be called before running the client.
+     *
+     * @param responseCache cache of verified responses, or {@code null} to ask the server for every query
+     */
+    public final void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * @return cache of verified responses, or {@code null} if caching is disabled
+     */
+    protected final ResponseCache responseCache() {
+        return responseCache;
+    }
 
     /**
      * @return {@code true} if the client finishes its request, otherwise {@code false}
@@ -113,4 +222,14 @@ public abstract class Client {
     public final boolean isFinished() {
         return isFinished;
     }
+
+
+    /**
+     * Protocols supported by client
+     */
+    public enum Protocol {
+        TEXT,   // line based text protocol (default)
+        BINARY, // length-prefixed binary frames with raw signatures
+        UDP     // binary frames, one query per datagram (client IP address is taken from datagram source)
+    }
 }
@@ -0,0 +1,84 @@
+package DNSSEC.ClientPack;
+
+import DNSSEC.Common.BinaryProtocol;
+import DNSSEC.ServerPack.ZoneUpdate;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Connectionless binary protocol: one query frame per datagram, client IP address is taken by server from datagram source
+ */
+class DatagramServerConnection extends ServerConnection {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int responseTimeout = 2000;    // in millisecond, as lost datagrams are not retransmitted
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private final DatagramSocket socket;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(BinaryProtocol.maxFrameLength);
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(BinaryProtocol.maxFrameLength);
+    private final DatagramPacket receivePacket = new DatagramPacket(receiveBuffer.array(), receiveBuffer.capacity());
+
+    private int requestId = 0;
+
+
+    DatagramServerConnection(DatagramChannel channel) throws IOException {
+        // channel is connected, so socket adaptor is used only for its receive timeout
+        socket = channel.socket();
+        socket.setSoTimeout(responseTimeout);
+    }
+
+    @Override
+    public int sendQuery(String domain) throws IOException {
+        beginDatagram(BinaryProtocol.QUERY);
+        BinaryProtocol.putString(sendBuffer, domain);
+        return sendDatagram();
+    }
+
+    @Override
+    public int sendUpdate(ZoneUpdate update) throws IOException {
+        beginDatagram(BinaryProtocol.UPDATE);
+        BinaryServerConnection.encodeUpdate(sendBuffer, update);
+        return sendDatagram();
+    }
+
+    private void beginDatagram(byte type) {
+        sendBuffer.clear();
+        sendBuffer.putInt(0);   // placeholder for frame length
+        sendBuffer.put(type);
+        sendBuffer.putInt(++requestId);
+    }
+
+    private int sendDatagram() throws IOException {
+        sendBuffer.putInt(0, sendBuffer.position() - 4);
+        socket.send(new DatagramPacket(sendBuffer.array(), sendBuffer.position()));
+        return requestId;
+    }
+
+    @Override
+    public Response readResponse() throws IOException {
+        socket.receive(receivePacket);
+        if (socket.isClosed()) return null;    // closed by another thread while receiving
+        receiveBuffer.clear();
+        receiveBuffer.limit(receivePacket.getLength());
+        receiveBuffer.getInt(); // frame length
+        return BinaryServerConnection.decode(receiveBuffer);
+    }
+
+    @Override
+    public void flush() {
+        // every query is sent immediately as a datagram
+    }
+
+    @Override
+    public int responseTimeout() {
+        return responseTimeout;
+    }
+}
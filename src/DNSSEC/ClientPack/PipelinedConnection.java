@@ -0,0 +1,204 @@
+package DNSSEC.ClientPack;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Pipelined queries over a single server connection
+ * <p>
+ * Queries are sent without waiting for the responses of earlier queries, and a reader thread completes the future of
+ * every response by its request ID. At most {@code maxOutstandingRequests} queries are in flight: {@link #query(String)}
+ * blocks until an earlier query is answered beyond it.
+ * <p>
+ * Futures are completed by a separate callback thread (not the reader thread), so a callback may send the next query
+ * even if it has to wait for a free slot.
+ * <p>
+ * Over a connection whose responses may be lost (datagrams), a query which is not answered within the response timeout
+ * of the connection fails alone with a {@link SocketTimeoutException} and its slot is freed; the connection is kept and
+ * a late response of the query is dropped.
+ */
+public class PipelinedConnection {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int lateResponseTimeouts = 10;    // late responses of lost queries are dropped for this long
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private final ServerConnection connection;
+    private final Semaphore outstandingSlots;
+    private final long responseTimeout;     // in nanosecond, 0 if responses are never lost
+
+    // future of a sent query, or response which is received before its future is registered
+    private final Map<Integer, Object> outstandingRequests = new ConcurrentHashMap<>();
+
+    // request IDs of lost queries with the time they were failed, used by the reader thread only
+    private final Map<Integer, Long> lostRequests = new HashMap<>();
+    private long lastLostCheckTime;
+
+    private final ExecutorService callbackThread;
+    private volatile boolean isClosed = false;
+
+
+    PipelinedConnection(ServerConnection connection, int maxOutstandingRequests) {
+        this.connection = connection;
+        this.outstandingSlots = new Semaphore(maxOutstandingRequests);
+        this.responseTimeout = TimeUnit.MILLISECONDS.toNanos(connection.responseTimeout());
+        this.callbackThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipelined-callback");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread reader = new Thread(this::readResponses, "pipelined-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * This method sends the query immediately (blocking only while too many queries are in flight).
+     *
+     * @return future of the response, completed exceptionally if the connection is closed before the response
+     */
+    public CompletableFuture<Response> query(String domain) throws IOException {
+        try {
+            outstandingSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for outstanding requests.");
+        }
+
+        CompletableFuture<Response> future = new SentQuery(System.nanoTime());
+        int requestId;
+        synchronized (connection) {
+            if (isClosed) {
+                outstandingSlots.release();
+                throw new IOException("Connection closed by DNS server.");
+            }
+            requestId = connection.sendQuery(domain);
+            connection.flush();
+        }
+
+        // the response may be received before the future is registered
+        Object response = outstandingRequests.putIfAbsent(requestId, future);
+        if (response != null) {
+            outstandingRequests.remove(requestId);
+            complete(future, (Response) response);
+        } else if (isClosed && outstandingRequests.remove(requestId, future)) {
+            // reader finished before the future is registered
+            completeExceptionally(future, new IOException("Connection closed by DNS server."));
+        }
+        return future;
+    }
+
+    /**
+     * @return the number of queries which are sent but not answered yet
+     */
+    public int outstandingRequests() {
+        return outstandingRequests.size();
+    }
+
+    private void readResponses() {
+        IOException failure = new IOException("Connection closed by DNS server.");
+        lastLostCheckTime = System.nanoTime();
+        while (true) {
+            Response response;
+            try {
+                response = connection.readResponse();
+            } catch (SocketTimeoutException e) {
+                // nothing received within the response timeout: only the queries waiting longer than it are lost
+                if (responseTimeout == 0) {
+                    failure = e;
+                    break;
+                }
+                failLostRequests();
+                continue;
+            } catch (IOException e) {
+                failure = e;
+                break;
+            }
+            if (response == null) break;
+
+            // late response of a lost query, whose slot is already freed
+            if (!lostRequests.isEmpty() && lostRequests.remove(response.requestId) != null) continue;
+
+            outstandingSlots.release();
+            Object future = outstandingRequests.putIfAbsent(response.requestId, response);
+            if (future != null) {
+                outstandingRequests.remove(response.requestId);
+                complete(future, response);
+            }
+
+            // a response may be lost while others are received, so lost queries are also looked for once per timeout
+            if (responseTimeout > 0 && System.nanoTime() - lastLostCheckTime >= responseTimeout) failLostRequests();
+        }
+
+        // fail all queries which will never be answered
+        synchronized (connection) {
+            isClosed = true;
+        }
+        for (Map.Entry<Integer, Object> request : outstandingRequests.entrySet()) {
+            Object future = request.getValue();
+            if (future instanceof CompletableFuture && outstandingRequests.remove(request.getKey(), future))
+                completeExceptionally(future, failure);
+        }
+        callbackThread.shutdown();
+    }
+
+    /**
+     * This method fails the queries which are waiting for their responses longer than the response timeout.
+     */
+    private void failLostRequests() {
+        long currentTime = System.nanoTime();
+        lastLostCheckTime = currentTime;
+        lostRequests.values().removeIf(lostTime -> currentTime - lostTime >= lateResponseTimeouts * responseTimeout);
+
+        IOException failure = null;
+        for (Map.Entry<Integer, Object> request : outstandingRequests.entrySet()) {
+            Object future = request.getValue();
+            if (!(future instanceof SentQuery) || currentTime - ((SentQuery) future).sentTime < responseTimeout)
+                continue;
+            if (!outstandingRequests.remove(request.getKey(), future)) continue;
+
+            lostRequests.put(request.getKey(), currentTime);
+            outstandingSlots.release();
+            if (failure == null) failure = new SocketTimeoutException("No response within " +
+                    Long.toString(TimeUnit.NANOSECONDS.toMillis(responseTimeout)) + " msec.");
+            completeExceptionally(future, failure);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete(Object future, Response response) {
+        runCallback(() -> ((CompletableFuture<Response>) future).complete(response));
+    }
+
+    private void completeExceptionally(Object future, IOException failure) {
+        runCallback(() -> ((CompletableFuture<?>) future).completeExceptionally(failure));
+    }
+
+    private void runCallback(Runnable callback) {
+        try {
+            callbackThread.execute(callback);
+        } catch (RejectedExecutionException e) {
+            callback.run();     // connection is already closed
+        }
+    }
+
+
+    /**
+     * Future of a sent query with its send time
+     */
+    private static class SentQuery extends CompletableFuture<Response> {
+        final long sentTime;
+
+        SentQuery(long sentTime) {
+            this.sentTime = sentTime;
+        }
+    }
+}
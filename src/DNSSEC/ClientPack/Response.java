@@ -0,0 +1,36 @@
+package DNSSEC.ClientPack;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Class for a decoded server response, independent of the protocol used
+ */
+public class Response {
+    public enum Type {
+        ANSWER,     // IP address of existing domain
+        NSEC,       // non-existed domain range
+        NSEC3,      // non-existed domain hash range (domainStart and domainEnd are hashes)
+        MESSAGE,    // server message instead of IP address or NSEC
+        INVALID     // response cannot be decoded
+    }
+
+    public final Type type;
+    public int requestId;
+
+    public String domain = "";
+    public String ip = "";
+
+    public String domainStart = "";
+    public String domainEnd = "";
+
+    public byte[] signature = new byte[0];
+
+    // hash parameters of NSEC3
+    public byte[] salt = new byte[0];
+    public int iterations = 0;
+
+    public String message = "";
+
+    public Response(Type type) {
+        this.type = type;
+    }
+}
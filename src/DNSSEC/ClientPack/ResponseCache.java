@@ -0,0 +1,165 @@
+package DNSSEC.ClientPack;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Client side cache of verified server responses (aggressive negative caching as in RFC 8198)
+ * <p>
+ * An NSEC response proves that every domain between its range start and range end does not exist, so the range is
+ * kept in a sorted map by its start and any later domain inside it is answered without asking the server. Answers of
+ * existing domains are kept by domain. Only verified responses should be put, and entries expire after
+ * {@code ttlMillis} so that zone updates are seen eventually.
+ */
+public class ResponseCache {
+    // ---------- Configurable Data (start) ---------- //
+
+    public static final long defaultTtlMillis = 60 * 1000;
+    public static final int defaultMaxEntries = 100000;  // for NSEC ranges and answers each
+
+    private static final long purgeIntervalMillis = 1000;  // a full cache is scanned for expired entries at most once per interval
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private final ConcurrentSkipListMap<String, Entry> ranges = new ConcurrentSkipListMap<>();   // by range start
+    private final ConcurrentHashMap<String, Entry> answers = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private volatile long nextPurgeTime = 0;
+
+    private final LongAdder rangeHits = new LongAdder();
+    private final LongAdder answerHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+
+    public ResponseCache() {
+        this(defaultTtlMillis, defaultMaxEntries);
+    }
+
+    public ResponseCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return cached answer of the domain or cached NSEC range covering it, otherwise {@code null}
+     */
+    public Response lookup(String domain) {
+        long currentTime = System.currentTimeMillis();
+
+        Entry answer = answers.get(domain);
+        if (answer != null) {
+            if (answer.expiryTime > currentTime) {
+                answerHits.increment();
+                return answer.response;
+            }
+            answers.remove(domain, answer);
+        }
+
+        // only the range starting right before the domain can cover it (ranges of a zone do not overlap)
+        Map.Entry<String, Entry> floor = ranges.lowerEntry(domain);
+        if (floor != null) {
+            Entry range = floor.getValue();
+            if (range.expiryTime <= currentTime) {
+                ranges.remove(floor.getKey(), range);
+            } else if (domain.compareTo(range.response.domainEnd) < 0) {
+                rangeHits.increment();
+                return range.response;
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * This method caches a verified response of the domain. Server messages are not cached.
+     */
+    public void put(String domain, Response response) {
+        long currentTime = System.currentTimeMillis();
+        long expiryTime = currentTime + ttlMillis;
+        switch (response.type) {
+            case ANSWER:
+                if (answers.size() >= maxEntries && !removeExpired(answers.values().iterator(), currentTime))
+                    return;
+                answers.put(domain, new Entry(response, expiryTime));
+                break;
+
+            case NSEC:
+                if (ranges.size() >= maxEntries && !removeExpired(ranges.values().iterator(), currentTime))
+                    return;
+                ranges.put(response.domainStart, new Entry(response, expiryTime));
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    public void clear() {
+        ranges.clear();
+        answers.clear();
+    }
+
+    /**
+     * @return the number of lookups answered by a cached NSEC range
+     */
+    public long rangeHits() {
+        return rangeHits.sum();
+    }
+
+    /**
+     * @return the number of lookups answered by a cached answer
+     */
+    public long answerHits() {
+        return answerHits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public String summary() {
+        return "NSEC ranges=" + Integer.toString(ranges.size()) + ", answers=" + Integer.toString(answers.size()) +
+                ", range hits=" + Long.toString(rangeHits()) + ", answer hits=" + Long.toString(answerHits()) +
+                ", misses=" + Long.toString(misses());
+    }
+
+
+    /**
+     * This method is called only when the cache is full, and scans at most once per {@code purgeIntervalMillis}
+     * (responses are not cached meanwhile), so a full cache of live entries does not make every put a scan.
+     *
+     * @return {@code true} if any entry is removed
+     */
+    private boolean removeExpired(Iterator<Entry> entries, long currentTime) {
+        if (currentTime < nextPurgeTime) return false;
+        nextPurgeTime = currentTime + purgeIntervalMillis;
+
+        boolean isRemoved = false;
+        while (entries.hasNext()) {
+            if (entries.next().expiryTime <= currentTime) {
+                entries.remove();
+                isRemoved = true;
+            }
+        }
+        return isRemoved;
+    }
+
+
+    private static class Entry {
+        final Response response;
+        final long expiryTime;
+
+        Entry(Response response, long expiryTime) {
+            this.response = response;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package DNSSEC.ClientPack;
+
+import DNSSEC.Common.NSEC3Hash;
+import DNSSEC.Common.SignatureAlgorithm;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Verifies signatures of server responses without any shared lock
+ * <p>
+ * Verifiers are not thread-safe, so each thread verifies with its own {@code SignatureAlgorithm.Verifier} and any
+ * number of client threads can verify at the same time. Verification can also be moved off the network thread:
+ * asynchronous verifications run on a pool shared by all clients (one thread per core), and if its queue is full the
+ * calling thread verifies by itself instead of queueing without limit.
+ */
+public class ResponseVerifier {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int verificationThreads = Runtime.getRuntime().availableProcessors();
+
+    private static final int verificationQueueCapacity = 1024;
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private static volatile ThreadPoolExecutor verificationPool = null;
+
+    private final ThreadLocal<SignatureAlgorithm.Verifier> threadVerifier;
+
+
+    public ResponseVerifier(SignatureAlgorithm algorithm, PublicKey publicKey) {
+        this.threadVerifier = ThreadLocal.withInitial(() -> {
+            try {
+                return algorithm.newVerifier(publicKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * This method is used in existing domain response verification.
+     */
+    public boolean isVerified(String domain, String ip, byte[] signature) {
+        return isSignatureOf(domain + "," + ip, signature);
+    }
+
+    /**
+     * This method is used in non-existing domain response verification.
+     */
+    public boolean isVerified(String domain, String domainRangeStart, String domainRangeEnd, byte[] signature) {
+        // check if domain in the range
+        if (domain.compareTo(domainRangeStart) < 0 || domain.compareTo(domainRangeEnd) > 0)
+            return false;
+
+        return isSignatureOf(domainRangeStart + "," + domainRangeEnd, signature);
+    }
+
+    /**
+     * This method is used in NSEC3 (hashed non-existing domain) response verification.
+     */
+    public boolean isVerified(String domain, String hashStart, String hashEnd, byte[] salt, int iterations,
+                              byte[] signature) {
+        // check if hash of domain in the range
+        String hash = NSEC3Hash.hashString(domain, salt, iterations);
+        if (hash == null || !NSEC3Hash.isCovered(hash, hashStart, hashEnd))
+            return false;
+
+        return isSignatureOf(NSEC3Hash.gapMessage(hashStart, hashEnd, salt, iterations), signature);
+    }
+
+    /**
+     * This method verifies an existing domain response on the verification pool.
+     */
+    public CompletableFuture<Boolean> verifyAsync(String domain, String ip, byte[] signature) {
+        return CompletableFuture.supplyAsync(() -> isVerified(domain, ip, signature), pool());
+    }
+
+    /**
+     * This method verifies a non-existing domain response on the verification pool.
+     */
+    public CompletableFuture<Boolean> verifyAsync(String domain, String domainRangeStart, String domainRangeEnd,
+                                                  byte[] signature) {
+        return CompletableFuture.supplyAsync(() -> isVerified(domain, domainRangeStart, domainRangeEnd, signature), pool());
+    }
+
+    /**
+     * This method verifies an NSEC3 response on the verification pool (hashing also runs there).
+     */
+    public CompletableFuture<Boolean> verifyAsync(String domain, String hashStart, String hashEnd, byte[] salt,
+                                                  int iterations, byte[] signature) {
+        return CompletableFuture.supplyAsync(() -> isVerified(domain, hashStart, hashEnd, salt, iterations, signature),
+                pool());
+    }
+
+
+    private boolean isSignatureOf(String message, byte[] signature) {
+        return threadVerifier.get().verify(message, signature);
+    }
+
+    private static ThreadPoolExecutor pool() {
+        ThreadPoolExecutor pool = verificationPool;
+        if (pool != null) return pool;
+
+        synchronized (ResponseVerifier.class) {
+            if (verificationPool == null) {
+                AtomicInteger threadNumber = new AtomicInteger();
+                verificationPool = new ThreadPoolExecutor(verificationThreads, verificationThreads,
+                        0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(verificationQueueCapacity),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "verifier-" + threadNumber.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+            }
+            return verificationPool;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package DNSSEC.ClientPack;
+
+import DNSSEC.ServerPack.ZoneUpdate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Client side of a server connection, independent of the protocol used by the client
+ */
+public abstract class ServerConnection {
+    /**
+     * This method creates the connection for the protocol and sends client IP address.
+     */
+    public static ServerConnection open(InputStream in, OutputStream out, Client.Protocol protocol, String clientIp) throws IOException {
+        if (protocol == Client.Protocol.BINARY) return new BinaryServerConnection(in, out, clientIp);
+        else return new TextServerConnection(in, out, clientIp);
+    }
+
+    /**
+     * Queries are buffered until {@link #flush()} is called.
+     *
+     * @return request ID of the query
+     */
+    public abstract int sendQuery(String domain) throws IOException;
+
+    /**
+     * Zone updates are buffered like queries and answered by a server message.
+     *
+     * @return request ID of the update
+     */
+    public abstract int sendUpdate(ZoneUpdate update) throws IOException;
+
+    /**
+     * @return the next response, or {@code null} if server closed the connection
+     */
+    public abstract Response readResponse() throws IOException;
+
+    public abstract void flush() throws IOException;
+
+    /**
+     * @return time in millisecond after which a response is taken as lost, or 0 if responses are never lost (stream)
+     */
+    public int responseTimeout() {
+        return 0;
+    }
+}
@@ -0,0 +1,108 @@
+package DNSSEC.ClientPack;
+
+import DNSSEC.Common.NSEC3Hash;
+import DNSSEC.ServerPack.Security.NSEC;
+import DNSSEC.ServerPack.ZoneUpdate;
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.*;
+import java.util.Scanner;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Line based text protocol: one domain per request line and one space-separated response line
+ */
+class TextServerConnection extends ServerConnection {
+    private final Scanner in;
+    private final PrintWriter out;
+
+    private int requestId = 0;
+    private int responseId = 0; // server responds in order, so responses are matched by counting
+
+
+    TextServerConnection(InputStream inputStream, OutputStream outputStream, String clientIp) {
+        in = new Scanner(new BufferedReader(new InputStreamReader(inputStream)));
+        out = new PrintWriter(outputStream, true);
+        out.println(clientIp);
+    }
+
+    @Override
+    public int sendQuery(String domain) {
+        out.println(domain);
+        return ++requestId;
+    }
+
+    @Override
+    public int sendUpdate(ZoneUpdate update) {
+        out.println(update.toString());
+        return ++requestId;
+    }
+
+    @Override
+    public Response readResponse() {
+        if (!in.hasNextLine()) return null;
+        Response result = parseResponse(in.nextLine());
+        result.requestId = ++responseId;
+        return result;
+    }
+
+    private static Response parseResponse(String responseWholeLine) {
+        // parsing server response
+        String[] response = responseWholeLine.split(" ");
+
+        // check if NSEC3 received
+        if (response.length == 5 && response[0].equals(NSEC3Hash.header)) {
+            String[] hashRange = response[3].split(",");
+            byte[] salt = NSEC3Hash.parseSalt(response[2]);
+            if (hashRange.length != 2 || salt == null) return new Response(Response.Type.INVALID);
+
+            Response result = new Response(Response.Type.NSEC3);
+            try {
+                result.iterations = Integer.parseInt(response[1]);
+            } catch (NumberFormatException e) {
+                return new Response(Response.Type.INVALID);
+            }
+            result.salt = salt;
+            result.domainStart = hashRange[0];
+            result.domainEnd = hashRange[1];
+            result.signature = Base64.decodeBase64(response[4]);
+            return result;
+        }
+
+        // check if server message received instead of IP address or NSEC
+        if (response.length > 3) {
+            Response result = new Response(Response.Type.MESSAGE);
+            result.message = responseWholeLine;
+            return result;
+        }
+
+        // check if NSEC received
+        if (response.length == 3 && response[0].equals(NSEC.header)) {
+            String[] domainRange = response[1].split(",");
+            if (domainRange.length != 2) return new Response(Response.Type.INVALID);
+
+            Response result = new Response(Response.Type.NSEC);
+            result.domainStart = domainRange[0];
+            result.domainEnd = domainRange[1];
+            result.signature = Base64.decodeBase64(response[2]);
+            return result;
+        }
+
+        // check if invalid response received
+        if (response.length != 2) return new Response(Response.Type.INVALID);
+
+        String[] domainIpResponse = response[0].split(",");
+        if (domainIpResponse.length != 2) return new Response(Response.Type.INVALID);
+
+        Response result = new Response(Response.Type.ANSWER);
+        result.domain = domainIpResponse[0];
+        result.ip = domainIpResponse[1];
+        result.signature = Base64.decodeBase64(response[1]);
+        return result;
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+}
@@ -0,0 +1,242 @@
+package DNSSEC.Common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Length-prefixed binary framing shared by server and client
+ * <p>
+ * A binary client starts the connection with {@link #magic} followed by a {@link #HELLO} frame containing its IP address,
+ * which the server acknowledges with its own {@link #HELLO} frame. After that every message is a frame:
+ * <pre>
+ * [int length][byte type][int requestId][body]
+ * </pre>
+ * where {@code length} counts everything after itself. Strings are written as {@code [short length][UTF-8 bytes]} and
+ * signatures as {@code [short length][raw bytes]}.
+ */
+public final class BinaryProtocol {
+    // first byte is never sent by a text client, so the server can detect binary clients by a single byte
+    public static final byte[] magic = {0, 'D', 'N', 'S', 'S', 'E', 'C', 1};
+
+    // frame types
+    public static final byte HELLO = 0;
+    public static final byte QUERY = 1;
+    public static final byte ANSWER = 2;
+    public static final byte NSEC = 3;
+    public static final byte MESSAGE = 4;
+    public static final byte UPDATE = 5;    // body: [byte update type ordinal][string domain][string ip]
+    public static final byte NSEC3 = 6;     // body: [string hashStart][string hashEnd][bytes signature][bytes salt][short iterations]
+
+    public static final int maxFrameLength = 65535;
+    public static final int frameHeaderLength = 4 + 1 + 4;  // length, type and requestId
+
+    // initial buffers of a connection, grown only for larger frames (a response frame is a few hundred bytes)
+    private static final int initialReaderLength = 4 * 1024;
+    private static final int initialWriterLength = 8 * 1024;
+
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * @return upper bound of the bytes written by {@link #putString(ByteBuffer, String)}
+     */
+    public static int maxStringLength(String string) {
+        return 2 + 3 * string.length();
+    }
+
+    /**
+     * @return exact number of bytes written by {@link #putString(ByteBuffer, String)}
+     */
+    public static int stringLength(String string) {
+        int length = string.length();
+        int bytes = 2;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) bytes += 1;
+            else if (c < 0x800) bytes += 2;
+            else if (!Character.isSurrogate(c)) bytes += 3;
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 1;     // unpaired surrogate is encoded as '?'
+            }
+        }
+        return bytes;
+    }
+
+    public static void putString(ByteBuffer buffer, String string) {
+        // fast path for ASCII strings (all valid domains) without allocating an encoded copy
+        int length = string.length();
+        boolean isAscii = true;
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) >= 0x80) {
+                isAscii = false;
+                break;
+            }
+        }
+        if (isAscii) {
+            buffer.putShort((short) length);
+            for (int i = 0; i < length; i++) buffer.put((byte) string.charAt(i));
+        } else {
+            putBytes(buffer, string.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (!buffer.hasArray()) {
+            // direct or memory-mapped buffer
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    public static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+
+    /**
+     * Reads frames from an input stream into a reused buffer, which grows only when a frame does not fit
+     */
+    public static class FrameReader {
+        private final InputStream in;
+        private ByteBuffer buffer = ByteBuffer.allocate(initialReaderLength);
+
+        public FrameReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * The returned buffer is reused by the next call, so it must be consumed before reading another frame.
+         *
+         * @return buffer positioned at the frame type and limited to the frame end, or {@code null} at end of stream
+         */
+        public ByteBuffer readFrame() throws IOException {
+            int first = in.read();
+            if (first < 0) return null;
+
+            buffer.clear();
+            buffer.put((byte) first);
+            readFully(3);
+            int length = buffer.getInt(0);
+            if (length < (frameHeaderLength - 4) || length > (maxFrameLength - 4))
+                throw new IOException("Invalid frame length: " + Integer.toString(length));
+
+            if (length > buffer.capacity()) buffer = ByteBuffer.allocate(Math.min(maxFrameLength, 2 * length));
+            buffer.clear();
+            readFully(length);
+            buffer.flip();
+            return buffer;
+        }
+
+        /**
+         * @return {@code true} if more input is already available without blocking
+         */
+        public boolean isInputAvailable() throws IOException {
+            return in.available() > 0;
+        }
+
+        private void readFully(int length) throws IOException {
+            int end = buffer.position() + length;
+            while (buffer.position() < end) {
+                int count = in.read(buffer.array(), buffer.position(), end - buffer.position());
+                if (count < 0) throw new EOFException("Connection closed in the middle of a frame.");
+                buffer.position(buffer.position() + count);
+            }
+        }
+    }
+
+
+    /**
+     * Writes frames into a buffer which is sent to the output stream only on {@link #flush()},
+     * so that several frames can be coalesced into one write
+     * <p>
+     * The buffer grows only when a single frame does not fit into it.
+     */
+    public static class FrameWriter {
+        private final OutputStream out;
+        private ByteBuffer buffer = ByteBuffer.allocate(initialWriterLength);
+
+        private int frameStart;
+
+        public FrameWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * @param maxBodyLength upper bound of the body length (eg. sum of {@link #maxStringLength(String)})
+         * @return buffer in which the frame body should be put before calling {@link #endFrame()}
+         */
+        public ByteBuffer beginFrame(byte type, int requestId, int maxBodyLength) throws IOException {
+            reserve(Math.min(maxFrameLength, frameHeaderLength + maxBodyLength));
+            frameStart = buffer.position();
+            buffer.putInt(0);   // placeholder for frame length
+            buffer.put(type);
+            buffer.putInt(requestId);
+            return buffer;
+        }
+
+        public void endFrame() {
+            buffer.putInt(frameStart, buffer.position() - frameStart - 4);
+        }
+
+        /**
+         * This method writes a pre-encoded frame with the requestId replaced.
+         */
+        public void writeFrame(byte[] frame, int requestIdOffset, int requestId) throws IOException {
+            reserve(frame.length);
+            int frameStart = buffer.position();
+            buffer.put(frame);
+            buffer.putInt(frameStart + requestIdOffset, requestId);
+        }
+
+        public void writeRaw(byte[] bytes) throws IOException {
+            reserve(bytes.length);
+            buffer.put(bytes);
+        }
+
+        /**
+         * This method flushes the buffered frames if {@code length} bytes do not fit after them, and grows the buffer
+         * if they do not fit at all.
+         */
+        private void reserve(int length) throws IOException {
+            if (buffer.remaining() >= length) return;
+            flush();
+            if (buffer.capacity() < length) buffer = ByteBuffer.allocate(Math.max(length, 2 * buffer.capacity()));
+        }
+
+        /**
+         * This method drops the frames which are not flushed yet (eg. of a request which failed while responding).
+         */
+        public void discard() {
+            buffer.clear();
+        }
+
+        public void flush() throws IOException {
+            if (buffer.position() > 0) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package DNSSEC.Common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Thread-safe log-linear latency histogram (values in nanoseconds)
+ * <p>
+ * Each power of two is split into {@code subBucketCount} linear sub-buckets, so any reported percentile
+ * is within about 6% of the recorded value while the whole histogram is a few fixed arrays.
+ * <p>
+ * Threads recording at the same time rarely update the same counter: bucket counts are striped by thread (one array
+ * for each stripe, summed when read), the total count and sum are {@link LongAdder}s and the maximum is a
+ * {@link LongAccumulator}, which is written only when the maximum grows.
+ */
+public class LatencyHistogram {
+    private static final int subBucketBits = 4;
+    private static final int subBucketCount = 1 << subBucketBits;
+    private static final int bucketCount = (64 - subBucketBits + 1) * subBucketCount;
+
+    // power of two not smaller than the number of cores (at most 16)
+    private static final int stripeCount = Integer.highestOneBit(Math.min(16,
+            Math.max(1, 2 * Runtime.getRuntime().availableProcessors() - 1)));
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[stripeCount];
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+
+    public LatencyHistogram() {
+        for (int i = 0; i < stripeCount; i++) stripes[i] = new AtomicLongArray(bucketCount);
+    }
+
+    public void record(long valueNanos) {
+        if (valueNanos < 0) valueNanos = 0;
+        stripes[stripeIndex()].incrementAndGet(bucketIndex(valueNanos));
+        totalCount.increment();
+        totalValue.add(valueNanos);
+        maxValue.accumulate(valueNanos);
+    }
+
+    public long count() {
+        return totalCount.sum();
+    }
+
+    public long max() {
+        return maxValue.get();
+    }
+
+    public double mean() {
+        long count = totalCount.sum();
+        return (count == 0) ? 0.0 : ((double) totalValue.sum() / count);
+    }
+
+    /**
+     * @param percentile percentile in scale of 0.0 to 100.0 (inclusive)
+     * @return the upper bound of the bucket containing the percentile, or 0 if nothing was recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) return 0;
+
+        long targetCount = Math.max(1, (long) Math.ceil((percentile / 100.0) * count));
+        long cumulativeCount = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            for (AtomicLongArray stripe : stripes) cumulativeCount += stripe.get(i);
+            if (cumulativeCount >= targetCount) return Math.min(bucketUpperBound(i), maxValue.get());
+        }
+        return maxValue.get();
+    }
+
+    public void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < bucketCount; i++) stripe.set(i, 0);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        maxValue.reset();
+    }
+
+    /**
+     * @return one-line summary in microseconds
+     */
+    public String summary() {
+        return "count=" + Long.toString(count()) +
+                ", mean=" + String.format("%.1f", mean() / 1000.0) + "us" +
+                ", p50=" + Long.toString(valueAtPercentile(50.0) / 1000) + "us" +
+                ", p99=" + Long.toString(valueAtPercentile(99.0) / 1000) + "us" +
+                ", p999=" + Long.toString(valueAtPercentile(99.9) / 1000) + "us" +
+                ", max=" + Long.toString(max() / 1000) + "us";
+    }
+
+
+    private static int stripeIndex() {
+        // identity hash of the thread spreads threads over the stripes
+        int hash = System.identityHashCode(Thread.currentThread()) * 0x9E3779B9;
+        return (hash >>> 16) & (stripeCount - 1);
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < subBucketCount) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - subBucketBits)) & (subBucketCount - 1);
+        return ((exponent - subBucketBits + 1) << subBucketBits) + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < subBucketCount) return index;
+        int exponent = (index >>> subBucketBits) + subBucketBits - 1;
+        long subBucket = index & (subBucketCount - 1);
+        return ((subBucketCount + subBucket + 1) << (exponent - subBucketBits)) - 1;
+    }
+}
@@ -0,0 +1,269 @@
+package DNSSEC.Common;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Asynchronous level-controlled console log
+ * <p>
+ * A log call only puts its parts (not yet concatenated) into a lock-free ring buffer and returns; a single background
+ * writer thread builds the lines and prints them, so request threads never wait for the console lock or I/O.
+ * If the ring buffer is full the record is dropped (and counted) instead of blocking the caller.
+ * <p>
+ * Parts are printed with {@code String.valueOf}, except {@code byte[]} parts which are printed as UTF-8 text
+ * (eg. pre-encoded responses). Every record is printed as a single line.
+ */
+public final class Log {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final Level defaultLevel = Level.DEBUG;   // overridden by system property "dnssec.log.level"
+    private static final int ringBufferCapacity = 1 << 14;  // must be a power of two
+    private static final long writerIdleMillis = 1;
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private static volatile Level level = initialLevel();
+
+    private static final RingBuffer ringBuffer = new RingBuffer(ringBufferCapacity);
+    private static final LongAdder droppedRecords = new LongAdder();
+    private static volatile Thread writer = null;
+
+
+    private Log() {
+    }
+
+    public static void setLevel(Level level) {
+        Log.level = level;
+    }
+
+    public static Level level() {
+        return level;
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(Log.level) >= 0 && level != Level.OFF;
+    }
+
+    public static void debug(Object message) {
+        log(Level.DEBUG, message, null, null);
+    }
+
+    public static void debug(Object first, Object second) {
+        log(Level.DEBUG, first, second, null);
+    }
+
+    public static void info(Object message) {
+        log(Level.INFO, message, null, null);
+    }
+
+    public static void info(Object first, Object second) {
+        log(Level.INFO, first, second, null);
+    }
+
+    public static void warning(Object message) {
+        log(Level.WARNING, message, null, null);
+    }
+
+    public static void error(Object message) {
+        log(Level.ERROR, message, null, null);
+    }
+
+    /**
+     * This method never blocks. Parts are printed one after another in a single line.
+     */
+    public static void log(Level level, Object first, Object second, Object third) {
+        if (!isEnabled(level)) return;
+        if (writer == null) startWriter();
+        if (!ringBuffer.offer(level, first, second, third)) droppedRecords.increment();
+    }
+
+    /**
+     * This method blocks until all records logged before the call are printed.
+     * It should be called before printing to the console directly (eg. before asking for input).
+     */
+    public static void flush() {
+        long target = ringBuffer.published();
+        while (writer != null && ringBuffer.consumed() < target) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        System.out.flush();
+        System.err.flush();
+    }
+
+    /**
+     * @return the number of records dropped because the ring buffer was full
+     */
+    public static long droppedRecords() {
+        return droppedRecords.sum();
+    }
+
+
+    private static Level initialLevel() {
+        String property = System.getProperty("dnssec.log.level");
+        if (property == null) return defaultLevel;
+        try {
+            return Level.valueOf(property.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null) return;
+        Thread thread = new Thread(Log::writeRecords, "log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        writer = thread;
+
+        // print remaining records when the program exits
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush));
+    }
+
+    private static void writeRecords() {
+        StringBuilder outLines = new StringBuilder();
+        StringBuilder errLines = new StringBuilder();
+        long reportedDrops = 0;
+
+        while (true) {
+            // build lines of all available records
+            boolean isFound = false;
+            while (ringBuffer.poll(outLines, errLines)) isFound = true;
+
+            long drops = droppedRecords.sum();
+            if (drops != reportedDrops) {
+                appendLine(errLines, "Log records dropped: " + Long.toString(drops - reportedDrops));
+                reportedDrops = drops;
+            }
+
+            if (outLines.length() > 0) print(System.out, outLines);
+            if (errLines.length() > 0) print(System.err, errLines);
+            ringBuffer.markConsumed();
+
+            if (!isFound) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(writerIdleMillis));
+        }
+    }
+
+    private static void print(PrintStream stream, StringBuilder lines) {
+        stream.print(lines);
+        stream.flush();
+        lines.setLength(0);
+    }
+
+    private static void appendPart(StringBuilder line, Object part) {
+        if (part instanceof byte[]) line.append(new String((byte[]) part, StandardCharsets.UTF_8));
+        else line.append(part);
+    }
+
+    private static void appendLine(StringBuilder lines, String line) {
+        lines.append(line).append(System.lineSeparator());
+    }
+
+
+    /**
+     * Log levels in increasing order of severity
+     */
+    public enum Level {
+        DEBUG,      // every request and response
+        INFO,       // server and client life cycle, summaries
+        WARNING,
+        ERROR,
+        OFF
+    }
+
+
+    /**
+     * Bounded multi-producer single-consumer ring buffer of log records
+     * <p>
+     * Every slot has a sequence number: a producer claims a position with a single CAS and publishes the slot by
+     * advancing its sequence, and the writer frees the slot by advancing it by the capacity. No record is allocated.
+     */
+    private static class RingBuffer {
+        private final int mask;
+        private final AtomicLongArray sequences;
+        private final Level[] levels;
+        private final Object[] firsts;
+        private final Object[] seconds;
+        private final Object[] thirds;
+
+        private final AtomicLong tail = new AtomicLong();
+        private long head = 0;                  // used by writer only
+        private volatile long consumed = 0;     // head after the last printed batch
+
+        RingBuffer(int capacity) {
+            mask = capacity - 1;
+            sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) sequences.set(i, i);
+            levels = new Level[capacity];
+            firsts = new Object[capacity];
+            seconds = new Object[capacity];
+            thirds = new Object[capacity];
+        }
+
+        boolean offer(Level level, Object first, Object second, Object third) {
+            long position = tail.get();
+            while (true) {
+                int slot = (int) position & mask;
+                long difference = sequences.get(slot) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        levels[slot] = level;
+                        firsts[slot] = first;
+                        seconds[slot] = second;
+                        thirds[slot] = third;
+                        sequences.lazySet(slot, position + 1);
+                        return true;
+                    }
+                    position = tail.get();
+                } else if (difference < 0) {
+                    return false;   // full
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        /**
+         * @return {@code false} if there is no published record
+         */
+        boolean poll(StringBuilder outLines, StringBuilder errLines) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) return false;
+
+            StringBuilder lines = (levels[slot].compareTo(Level.WARNING) >= 0) ? errLines : outLines;
+            int lineStart = lines.length();
+            if (firsts[slot] != null) appendPart(lines, firsts[slot]);
+            if (seconds[slot] != null) appendPart(lines, seconds[slot]);
+            if (thirds[slot] != null) appendPart(lines, thirds[slot]);
+            if (lines.length() == lineStart || lines.charAt(lines.length() - 1) != '\n')
+                lines.append(System.lineSeparator());
+
+            levels[slot] = null;
+            firsts[slot] = null;
+            seconds[slot] = null;
+            thirds[slot] = null;
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+            return true;
+        }
+
+        void markConsumed() {
+            consumed = head;
+        }
+
+        long consumed() {
+            return consumed;
+        }
+
+        long published() {
+            return tail.get();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package DNSSEC.Common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Transport between two ends inside the same JVM without any socket
+ * <p>
+ * Each direction is a bounded byte pipe (a ring buffer): bytes written to one end are read from the other end without
+ * any system call or kernel copy. A reader waits while its pipe is empty and a writer waits while it is full, so a slow
+ * reader slows down the writer as with TCP flow control. Closing an end ends the stream of the other end ({@code -1}
+ * from {@code read}) and makes its writes fail.
+ * <p>
+ * Unlike socket streams, a thread waiting in a pipe is interrupted by {@link Thread#interrupt()} with an
+ * {@link InterruptedIOException}.
+ */
+public class MemoryTransport implements Transport {
+    // Configurable Data
+    private static final int pipeCapacity = 64 * 1024;   // bytes buffered in each direction
+
+
+    private final Pipe in;
+    private final Pipe out;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+
+    private MemoryTransport peer;
+
+
+    /**
+     * This constructor creates one end of a new connection; the other end is returned by {@link #peer()}.
+     */
+    public MemoryTransport() {
+        this(new Pipe(pipeCapacity), new Pipe(pipeCapacity));
+        peer = new MemoryTransport(out, in);
+        peer.peer = this;
+    }
+
+    private MemoryTransport(Pipe in, Pipe out) {
+        this.in = in;
+        this.out = out;
+        inputStream = new PipeInputStream(in);
+        outputStream = new PipeOutputStream(out);
+    }
+
+    /**
+     * @return the other end of the connection
+     */
+    public MemoryTransport peer() {
+        return peer;
+    }
+
+    @Override
+    public InputStream inputStream() {
+        return inputStream;
+    }
+
+    @Override
+    public OutputStream outputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public InetAddress remoteAddress() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        in.closeReader();
+        out.closeWriter();
+    }
+
+
+    /**
+     * Bounded ring buffer of bytes from one writer end to one reader end
+     */
+    private static class Pipe {
+        private final byte[] buffer;
+        private int readPosition = 0;
+        private int count = 0;
+        private boolean isWriterClosed = false;
+        private boolean isReaderClosed = false;
+
+        Pipe(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        synchronized int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            while (count == 0) {
+                if (isReaderClosed) throw new IOException("Pipe closed.");
+                if (isWriterClosed) return -1;
+                waitForPeer();
+            }
+            if (isReaderClosed) throw new IOException("Pipe closed.");
+
+            // copy in at most two parts because the readable bytes may wrap around the end of buffer
+            int total = Math.min(length, count);
+            int first = Math.min(total, buffer.length - readPosition);
+            System.arraycopy(buffer, readPosition, bytes, offset, first);
+            System.arraycopy(buffer, 0, bytes, offset + first, total - first);
+            readPosition = (readPosition + total) % buffer.length;
+            count -= total;
+            notifyAll();
+            return total;
+        }
+
+        synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                while (count == buffer.length && !isReaderClosed && !isWriterClosed) waitForPeer();
+                if (isReaderClosed || isWriterClosed) throw new IOException("Pipe closed.");
+
+                int writePosition = (readPosition + count) % buffer.length;
+                int total = Math.min(length, buffer.length - count);
+                int first = Math.min(total, buffer.length - writePosition);
+                System.arraycopy(bytes, offset, buffer, writePosition, first);
+                System.arraycopy(bytes, offset + first, buffer, 0, total - first);
+                count += total;
+                offset += total;
+                length -= total;
+                notifyAll();
+            }
+        }
+
+        synchronized int available() {
+            return count;
+        }
+
+        synchronized void closeReader() {
+            isReaderClosed = true;
+            notifyAll();
+        }
+
+        synchronized void closeWriter() {
+            isWriterClosed = true;
+            notifyAll();
+        }
+
+        private void waitForPeer() throws InterruptedIOException {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for pipe.");
+            }
+        }
+    }
+
+    private static class PipeInputStream extends InputStream {
+        private final Pipe pipe;
+        private final byte[] singleByte = new byte[1];
+
+        PipeInputStream(Pipe pipe) {
+            this.pipe = pipe;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return (pipe.read(singleByte, 0, 1) == -1) ? -1 : singleByte[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            return pipe.read(bytes, offset, length);
+        }
+
+        @Override
+        public int available() {
+            return pipe.available();
+        }
+
+        @Override
+        public void close() {
+            pipe.closeReader();
+        }
+    }
+
+    private static class PipeOutputStream extends OutputStream {
+        private final Pipe pipe;
+        private final byte[] singleByte = new byte[1];
+
+        PipeOutputStream(Pipe pipe) {
+            this.pipe = pipe;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            singleByte[0] = (byte) b;
+            pipe.write(singleByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            pipe.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() {
+            pipe.closeWriter();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package DNSSEC.Common;
+
+import org.apache.commons.codec.binary.Base32;
+import org.apache.commons.codec.binary.Hex;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Hashing of owner names for NSEC3 (RFC 5155), shared by server and client
+ * <p>
+ * The hash of a domain is {@code IH(salt, x, k)} where {@code x} is the domain in lowercase wire format (length-prefixed
+ * labels ending with the root label), {@code IH(salt, x, 0) = SHA-1(x | salt)} and
+ * {@code IH(salt, x, k) = SHA-1(IH(salt, x, k - 1) | salt)}. Hashes are written in Base32 with extended hex alphabet,
+ * which keeps the order of the hash bytes, so encoded hashes can be compared as strings.
+ */
+public final class NSEC3Hash {
+    public static final String header = "NSEC3";
+
+    public static final int hashLength = 20;        // SHA-1
+    public static final int maxOwnerNameLength = 255;
+
+    private static final int maxLabelLength = 63;
+
+    private static final ThreadLocal<MessageDigest> threadDigest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final Base32 base32Hex = new Base32(true);
+
+
+    private NSEC3Hash() {
+    }
+
+    /**
+     * This method writes the domain in lowercase wire format without allocation.
+     *
+     * @param ownerName buffer of at least {@link #maxOwnerNameLength} bytes
+     * @return length of the owner name, or -1 if the domain is not a valid owner name (eg. empty label)
+     */
+    public static int ownerName(String domain, byte[] ownerName) {
+        int end = domain.length();
+        if (end > 0 && domain.charAt(end - 1) == '.') end--;    // absolute domain
+        if (end == 0) return -1;
+
+        int length = 0;
+        int labelStart = 0;
+        while (true) {
+            int labelEnd = domain.indexOf('.', labelStart);
+            if (labelEnd < 0 || labelEnd > end) labelEnd = end;
+            int labelLength = labelEnd - labelStart;
+            if (labelLength == 0 || labelLength > maxLabelLength || length + 1 + labelLength + 1 > maxOwnerNameLength)
+                return -1;
+
+            ownerName[length++] = (byte) labelLength;
+            for (int i = labelStart; i < labelEnd; i++) {
+                char c = domain.charAt(i);
+                if (c >= 0x80) return -1;   // only ASCII domains are supported
+                ownerName[length++] = (byte) Character.toLowerCase(c);
+            }
+
+            if (labelEnd == end) break;
+            labelStart = labelEnd + 1;
+        }
+        ownerName[length++] = 0;    // root label
+        return length;
+    }
+
+    /**
+     * This method hashes the owner name with the digest of the calling thread.
+     *
+     * @param hash buffer of at least {@link #hashLength} bytes which receives the hash
+     */
+    public static void hash(byte[] ownerName, int ownerNameLength, byte[] salt, int iterations, byte[] hash) {
+        MessageDigest digest = threadDigest.get();
+        try {
+            digest.update(ownerName, 0, ownerNameLength);
+            digest.update(salt);
+            digest.digest(hash, 0, hashLength);
+            for (int i = 0; i < iterations; i++) {
+                digest.update(hash, 0, hashLength);
+                digest.update(salt);
+                digest.digest(hash, 0, hashLength);
+            }
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);    // buffer is large enough
+        }
+    }
+
+    /**
+     * @return encoded hash of the domain, or {@code null} if the domain is not a valid owner name
+     */
+    public static String hashString(String domain, byte[] salt, int iterations) {
+        byte[] ownerName = new byte[maxOwnerNameLength];
+        int ownerNameLength = ownerName(domain, ownerName);
+        if (ownerNameLength < 0) return null;
+
+        byte[] hash = new byte[hashLength];
+        hash(ownerName, ownerNameLength, salt, iterations, hash);
+        return toBase32Hex(hash);
+    }
+
+    public static String toBase32Hex(byte[] hash) {
+        return base32Hex.encodeAsString(hash);
+    }
+
+    /**
+     * @return salt in hexadecimal, or "-" for an empty salt (as in NSEC3 presentation format)
+     */
+    public static String saltString(byte[] salt) {
+        return (salt.length == 0) ? "-" : Hex.encodeHexString(salt);
+    }
+
+    /**
+     * @return salt of {@link #saltString(byte[])}, or {@code null} if it is not valid
+     */
+    public static byte[] parseSalt(String saltString) {
+        if (saltString.equals("-")) return new byte[0];
+        try {
+            return Hex.decodeHex(saltString.toCharArray());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * This method returns the signed message of a hashed gap, which includes the hash parameters so that a response
+     * cannot be replayed with other parameters.
+     */
+    public static String gapMessage(String hashStart, String hashEnd, byte[] salt, int iterations) {
+        return hashStart + "," + hashEnd + "," + saltString(salt) + "," + Integer.toString(iterations);
+    }
+
+    /**
+     * The last gap of the chain wraps around from the largest hash to the smallest one.
+     *
+     * @return {@code true} if the hash is strictly between the start and the end of the gap
+     */
+    public static boolean isCovered(String hash, String hashStart, String hashEnd) {
+        if (hashStart.compareTo(hashEnd) < 0) return hash.compareTo(hashStart) > 0 && hash.compareTo(hashEnd) < 0;
+        return hash.compareTo(hashStart) > 0 || hash.compareTo(hashEnd) < 0;
+    }
+
+    /**
+     * @return comparison of two hashes as unsigned bytes
+     */
+    public static int compare(byte[] first, int firstOffset, byte[] second, int secondOffset) {
+        for (int i = 0; i < hashLength; i++) {
+            int difference = (first[firstOffset + i] & 0xFF) - (second[secondOffset + i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return 0;
+    }
+}
@@ -1,18 +1,187 @@
 package DNSSEC.Common;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Created by arnob on 13/06/2017.
  * Class for some network tasks
+ * <p>
+ * IP addresses are parsed by hand without any allocation. IPv4 addresses are packed into an {@code int} and
+ * IPv6 addresses into two {@code long}s (high and low 64 bits); an IPv4 address is also an IPv6 address in its
+ * IPv4-mapped form ({@code ::ffff:a.b.c.d}), so both kinds can be handled as one 128-bit key.
  */
 public class NetworkTask {
-    private static final String validIP4Pattern = "^(([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.){3}([01]?\\d\\d?|2[0-4]\\d|25[0-5])$";
-    private static final Pattern pattern = Pattern.compile(validIP4Pattern);
+    public static final long invalidAddress = -1;
+
+    private static final long ip4MappedPrefix = 0xFFFF00000000L;   // low 64 bits of ::ffff:0.0.0.0
+
 
     public static boolean isValid_IP4_address(String ip4Address) {
-        Matcher matcher = pattern.matcher(ip4Address);
-        return matcher.matches();
+        return parseIP4Address(ip4Address) != invalidAddress;
+    }
+
+    public static boolean isValid_IP6_address(String ip6Address) {
+        return parseIP6Address(ip6Address, new long[2]);
+    }
+
+    /**
+     * Each part of the address must be a decimal number up to 255 with at most 3 digits.
+     *
+     * @return the address as an unsigned 32-bit value (cast to {@code int} to pack it), or {@link #invalidAddress}
+     */
+    public static long parseIP4Address(String ip4Address) {
+        return parseIP4Address(ip4Address, 0, ip4Address.length());
+    }
+
+    /**
+     * This method parses an IPv6 address (RFC 4291 text form, including {@code ::} compression and an embedded IPv4
+     * address at the end). Zone IDs (eg. {@code %eth0}) are not accepted.
+     *
+     * @param address receives high 64 bits at index 0 and low 64 bits at index 1 (reused by caller to avoid allocation)
+     * @return {@code false} if the address is not valid
+     */
+    public static boolean parseIP6Address(String ip6Address, long[] address) {
+        address[0] = 0;
+        address[1] = 0;
+        int length = ip6Address.length();
+
+        int doubleColon = ip6Address.indexOf("::");
+        if (doubleColon < 0) return parseIP6Groups(ip6Address, 0, length, 0, true, address) == 8;
+        if (ip6Address.indexOf("::", doubleColon + 1) >= 0) return false;
+
+        // groups after "::" are aligned to the end of the address
+        int tailGroups = countIP6Groups(ip6Address, doubleColon + 2, length);
+        int headGroups = parseIP6Groups(ip6Address, 0, doubleColon, 0, false, address);
+        if (headGroups < 0 || headGroups + tailGroups > 7) return false;
+        return parseIP6Groups(ip6Address, doubleColon + 2, length, 8 - tailGroups, true, address) == tailGroups;
+    }
+
+    /**
+     * This method parses an IPv4 or IPv6 address as a 128-bit key (IPv4 addresses are IPv4-mapped).
+     *
+     * @param address receives high 64 bits at index 0 and low 64 bits at index 1
+     * @return {@code false} if the address is neither a valid IPv4 nor a valid IPv6 address
+     */
+    public static boolean parseIPAddress(String ipAddress, long[] address) {
+        long ip4Address = parseIP4Address(ipAddress);
+        if (ip4Address != invalidAddress) {
+            address[0] = 0;
+            address[1] = ip4MappedPrefix | ip4Address;
+            return true;
+        }
+        return parseIP6Address(ipAddress, address);
+    }
+
+    /**
+     * This method packs a raw IPv4 (4 bytes) or IPv6 (16 bytes) address, eg. of {@code InetAddress.getAddress()}, as a
+     * 128-bit key in the same form as {@link #parseIPAddress(String, long[])}. Unlike the text form, a raw address has
+     * no zone ID, so link-local IPv6 addresses are packed as well.
+     *
+     * @param address receives high 64 bits at index 0 and low 64 bits at index 1
+     * @return {@code false} if the address has another length
+     */
+    public static boolean packIPAddress(byte[] rawAddress, long[] address) {
+        if (rawAddress.length == 4) {
+            address[0] = 0;
+            address[1] = ip4MappedPrefix | packBytes(rawAddress, 0, 4);
+            return true;
+        }
+        if (rawAddress.length != 16) return false;
+        address[0] = packBytes(rawAddress, 0, 8);
+        address[1] = packBytes(rawAddress, 8, 16);
+        return true;
+    }
+
+
+    private static long packBytes(byte[] bytes, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) value = (value << 8) | (bytes[i] & 0xFF);
+        return value;
+    }
+
+    private static long parseIP4Address(String string, int start, int end) {
+        long address = 0;
+        int parts = 0;
+        int position = start;
+        while (parts < 4) {
+            // parse decimal part
+            int value = 0;
+            int digits = 0;
+            while (position < end && digits <= 3) {
+                char c = string.charAt(position);
+                if (c < '0' || c > '9') break;
+                value = value * 10 + (c - '0');
+                digits++;
+                position++;
+            }
+            if (digits == 0 || digits > 3 || value > 255) return invalidAddress;
+            address = (address << 8) | value;
+            parts++;
+
+            // expect separator between parts
+            if (parts < 4) {
+                if (position >= end || string.charAt(position) != '.') return invalidAddress;
+                position++;
+            }
+        }
+        return (position == end) ? address : invalidAddress;
+    }
+
+    /**
+     * @return the number of 16-bit groups written from the position, or -1 if invalid
+     */
+    private static int parseIP6Groups(String string, int start, int end, int firstGroup, boolean isIP4Allowed,
+                                      long[] address) {
+        if (start == end) return 0;
+
+        int group = firstGroup;
+        int position = start;
+        while (true) {
+            int tokenEnd = string.indexOf(':', position);
+            if (tokenEnd < 0 || tokenEnd > end) tokenEnd = end;
+
+            if (tokenEnd == end && isIP4Allowed && string.lastIndexOf('.', end - 1) >= position) {
+                // embedded IPv4 address takes the last two groups
+                long ip4Address = parseIP4Address(string, position, end);
+                if (ip4Address == invalidAddress || group > 6) return -1;
+                setIP6Group(address, group++, (int) (ip4Address >>> 16));
+                setIP6Group(address, group++, (int) (ip4Address & 0xFFFF));
+                return group - firstGroup;
+            }
+
+            // parse hexadecimal group
+            int digits = tokenEnd - position;
+            if (digits == 0 || digits > 4 || group > 7) return -1;
+            int value = 0;
+            for (; position < tokenEnd; position++) {
+                int digit = hexDigit(string.charAt(position));
+                if (digit < 0) return -1;
+                value = (value << 4) | digit;
+            }
+            setIP6Group(address, group++, value);
+
+            if (tokenEnd == end) return group - firstGroup;
+            position = tokenEnd + 1;
+            if (position == end) return -1;     // trailing single colon
+        }
+    }
+
+    private static int countIP6Groups(String string, int start, int end) {
+        if (start == end) return 0;
+        int groups = 1;
+        for (int i = start; i < end; i++) if (string.charAt(i) == ':') groups++;
+        int lastDot = string.lastIndexOf('.', end - 1);
+        if (lastDot >= start && lastDot > string.lastIndexOf(':', end - 1)) groups++;   // embedded IPv4
+        return groups;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static void setIP6Group(long[] address, int group, int value) {
+        if (group < 4) address[0] |= ((long) value) << (16 * (3 - group));
+        else address[1] |= ((long) value) << (16 * (7 - group));
     }
 }
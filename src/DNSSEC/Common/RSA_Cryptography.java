@@ -70,13 +70,25 @@ public class RSA_Cryptography {
     }
 
     public String getSignatureFromHash(String msg, PrivateKey key) throws NoSuchAlgorithmException, NoSuchPaddingException, UnsupportedEncodingException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
-        this.cipher.init(Cipher.ENCRYPT_MODE, key);
-        return Base64.encodeBase64String(cipher.doFinal(msg.getBytes("UTF-8")));
+        return Base64.encodeBase64String(getSignatureBytesFromHash(msg, key));
     }
 
     public String getHashFromSignature(String msg, PublicKey key) throws InvalidKeyException, UnsupportedEncodingException, IllegalBlockSizeException, BadPaddingException {
+        return getHashFromSignatureBytes(Base64.decodeBase64(msg), key);
+    }
+
+    public byte[] getSignatureBytesFromHash(String msg, PrivateKey key) throws UnsupportedEncodingException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        this.cipher.init(Cipher.ENCRYPT_MODE, key);
+        return cipher.doFinal(msg.getBytes("UTF-8"));
+    }
+
+    public String getHashFromSignatureBytes(byte[] signature, PublicKey key) throws InvalidKeyException, UnsupportedEncodingException, IllegalBlockSizeException, BadPaddingException {
         this.cipher.init(Cipher.DECRYPT_MODE, key);
-        return new String(cipher.doFinal(Base64.decodeBase64(msg)), "UTF-8");
+        return new String(cipher.doFinal(signature), "UTF-8");
+    }
+
+    public static String toBase64(byte[] signature) {
+        return Base64.encodeBase64String(signature);
     }
 
     public byte[] getFileInBytes(File f) throws IOException {
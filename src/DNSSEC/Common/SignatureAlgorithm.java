@@ -0,0 +1,174 @@
+package DNSSEC.Common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.*;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Signature algorithms for signing zone records (inside server) and verifying responses (inside client)
+ * <p>
+ * {@link #RSA_HASH} is the original scheme: the decimal {@code String.hashCode()} of a record is encrypted by the RSA
+ * private key. The other algorithms sign the UTF-8 bytes of the record with {@code java.security.Signature} over a
+ * real digest. The algorithm is chosen by the system property {@code dnssec.signature.algorithm}, which must be the
+ * same for server and client.
+ * <p>
+ * Signers and verifiers are not thread-safe, so each thread should create its own.
+ */
+public enum SignatureAlgorithm {
+    RSA_HASH(null, "RSA", "RSA_keyPair/") {
+        @Override
+        public Signer newSigner(PrivateKey privateKey) throws GeneralSecurityException {
+            RSA_Cryptography rsa = new RSA_Cryptography();
+            return message -> {
+                try {
+                    return rsa.getSignatureBytesFromHash(hashString(message), privateKey);
+                } catch (UnsupportedEncodingException e) {
+                    throw new GeneralSecurityException(e);
+                }
+            };
+        }
+
+        @Override
+        public Verifier newVerifier(PublicKey publicKey) throws GeneralSecurityException {
+            RSA_Cryptography rsa = new RSA_Cryptography();
+            return (message, signature) -> {
+                try {
+                    return hashString(message).equals(rsa.getHashFromSignatureBytes(signature, publicKey));
+                } catch (GeneralSecurityException | UnsupportedEncodingException e) {
+                    return false;   // not a signature of this key
+                }
+            };
+        }
+    },
+    RSA_SHA256("SHA256withRSA", "RSA", "RSA_keyPair/"),
+    ECDSA_P256("SHA256withECDSA", "EC", "ECDSA_P256_keyPair/"),
+    ED25519("Ed25519", "Ed25519", "Ed25519_keyPair/");    // requires Java 15
+
+
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final SignatureAlgorithm defaultAlgorithm = RSA_HASH;  // overridden by "dnssec.signature.algorithm"
+
+    private static final int rsaKeySize = 1024;     // same as the key pair in RSA_keyPair folder
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private final String signatureName;     // name for java.security.Signature
+    private final String keyAlgorithm;
+    public final String keyFolder;          // folder containing publicKey and privateKey files
+
+
+    SignatureAlgorithm(String signatureName, String keyAlgorithm, String keyFolder) {
+        this.signatureName = signatureName;
+        this.keyAlgorithm = keyAlgorithm;
+        this.keyFolder = keyFolder;
+    }
+
+    /**
+     * @return the algorithm chosen by system property {@code dnssec.signature.algorithm}, otherwise the default one
+     */
+    public static SignatureAlgorithm configured() {
+        String property = System.getProperty("dnssec.signature.algorithm");
+        if (property == null) return defaultAlgorithm;
+        try {
+            return valueOf(property.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Log.warning("Unknown signature algorithm \"" + property + "\", " + defaultAlgorithm.name() + " is used.");
+            return defaultAlgorithm;
+        }
+    }
+
+    public Signer newSigner(PrivateKey privateKey) throws GeneralSecurityException {
+        Signature signature = Signature.getInstance(signatureName);
+        signature.initSign(privateKey);
+        return message -> {
+            signature.update(message.getBytes(StandardCharsets.UTF_8));
+            return signature.sign();    // also resets for the next message
+        };
+    }
+
+    public Verifier newVerifier(PublicKey publicKey) throws GeneralSecurityException {
+        Signature signature = Signature.getInstance(signatureName);
+        signature.initVerify(publicKey);
+        return (message, signatureBytes) -> {
+            try {
+                signature.update(message.getBytes(StandardCharsets.UTF_8));
+                return signature.verify(signatureBytes);
+            } catch (SignatureException e) {
+                // malformed signature, and the object must be initialized again
+                reinitializeVerify(signature, publicKey);
+                return false;
+            }
+        };
+    }
+
+    private static void reinitializeVerify(Signature signature, PublicKey publicKey) {
+        try {
+            signature.initVerify(publicKey);
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException(e);     // the key was accepted before
+        }
+    }
+
+    //https://docs.oracle.com/javase/8/docs/api/java/security/spec/X509EncodedKeySpec.html
+    public PublicKey readPublicKey(String filename) throws IOException, NoSuchAlgorithmException, InvalidKeySpecException {
+        byte[] keyBytes = Files.readAllBytes(new File(filename).toPath());
+        return KeyFactory.getInstance(keyAlgorithm).generatePublic(new X509EncodedKeySpec(keyBytes));
+    }
+
+    //https://docs.oracle.com/javase/8/docs/api/java/security/spec/PKCS8EncodedKeySpec.html
+    public PrivateKey readPrivateKey(String filename) throws IOException, NoSuchAlgorithmException, InvalidKeySpecException {
+        byte[] keyBytes = Files.readAllBytes(new File(filename).toPath());
+        return KeyFactory.getInstance(keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(keyBytes));
+    }
+
+    /**
+     * This method creates a new key pair and writes it in the same formats as read by {@code readPublicKey} and
+     * {@code readPrivateKey}.
+     */
+    public void writeNewKeyPair(String publicKeyFilename, String privateKeyFilename) throws IOException, GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm);
+        if (keyAlgorithm.equals("RSA")) generator.initialize(rsaKeySize);
+        else if (keyAlgorithm.equals("EC")) generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+
+        File publicKeyFile = new File(publicKeyFilename);
+        File keyFolder = publicKeyFile.getParentFile();
+        if (keyFolder != null && !keyFolder.isDirectory() && !keyFolder.mkdirs())
+            throw new IOException("Key folder cannot be created: " + keyFolder);
+        Files.write(new File(privateKeyFilename).toPath(), keyPair.getPrivate().getEncoded());
+        Files.write(publicKeyFile.toPath(), keyPair.getPublic().getEncoded());
+    }
+
+
+    private static String hashString(String message) {
+        return Integer.toString(message.hashCode());
+    }
+
+
+    /**
+     * Signer with its own state (not thread-safe)
+     */
+    public interface Signer {
+        byte[] sign(String message) throws GeneralSecurityException;
+    }
+
+    /**
+     * Verifier with its own state (not thread-safe)
+     */
+    public interface Verifier {
+        /**
+         * @return {@code false} if the signature is not a signature of the message (or is malformed)
+         */
+        boolean verify(String message, byte[] signature);
+    }
+}
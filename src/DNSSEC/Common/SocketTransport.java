@@ -0,0 +1,39 @@
+package DNSSEC.Common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Transport over a TCP socket
+ */
+public class SocketTransport implements Transport {
+    private final Socket socket;
+
+    public SocketTransport(Socket socket) {
+        this.socket = socket;
+    }
+
+    @Override
+    public InputStream inputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream outputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    @Override
+    public InetAddress remoteAddress() {
+        return socket.getInetAddress();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
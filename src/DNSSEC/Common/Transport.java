@@ -0,0 +1,26 @@
+package DNSSEC.Common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * One end of a connection between server and client carrying the bytes of the text or binary protocol
+ * <p>
+ * The connections of both protocols are opened on the streams of a transport, so the server and the clients do not
+ * depend on how the bytes are carried: {@link SocketTransport} over TCP (deployment) or {@link MemoryTransport} inside
+ * the same JVM (simulation). Closing a transport closes both of its streams.
+ */
+public interface Transport extends Closeable {
+    InputStream inputStream() throws IOException;
+
+    OutputStream outputStream() throws IOException;
+
+    /**
+     * @return IP address of the other end as seen by the network, or {@code null} if the transport has none (in memory)
+     */
+    InetAddress remoteAddress();
+}
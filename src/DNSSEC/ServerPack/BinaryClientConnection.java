@@ -0,0 +1,111 @@
+package DNSSEC.ServerPack;
+
+import DNSSEC.Common.BinaryProtocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Length-prefixed binary protocol with raw signature bytes and coalesced flushes
+ */
+class BinaryClientConnection extends ClientConnection {
+    private final BinaryProtocol.FrameReader reader;
+    private final BinaryProtocol.FrameWriter writer;
+
+    private ByteBuffer pendingFrame = null;
+    private int requestId;
+
+
+    BinaryClientConnection(InputStream inputStream, OutputStream outputStream) throws IOException {
+        reader = new BinaryProtocol.FrameReader(inputStream);
+        writer = new BinaryProtocol.FrameWriter(outputStream);
+
+        // check magic
+        byte[] magic = new byte[BinaryProtocol.magic.length];
+        int length = 0;
+        while (length < magic.length) {
+            int count = inputStream.read(magic, length, magic.length - length);
+            if (count < 0) break;
+            length += count;
+        }
+        if (!Arrays.equals(magic, BinaryProtocol.magic)) throw new IOException("Unsupported binary protocol version.");
+
+        // read client IP address and acknowledge
+        ByteBuffer frame = reader.readFrame();
+        if (frame == null || frame.get() != BinaryProtocol.HELLO) throw new IOException("Binary protocol hello expected.");
+        requestId = frame.getInt();
+        clientIp = BinaryProtocol.getString(frame);
+        writer.beginFrame(BinaryProtocol.HELLO, requestId, 0);
+        writer.endFrame();
+        writer.flush();
+    }
+
+    @Override
+    public ZoneUpdate readUpdate() throws IOException {
+        if (pendingFrame == null) pendingFrame = reader.readFrame();
+        if (pendingFrame == null || pendingFrame.get(pendingFrame.position()) != BinaryProtocol.UPDATE) return null;
+
+        ByteBuffer frame = pendingFrame;
+        pendingFrame = null;
+        frame.get();
+        requestId = frame.getInt();
+        return decodeUpdate(frame);
+    }
+
+    /**
+     * @param frame buffer positioned at the update frame body
+     */
+    static ZoneUpdate decodeUpdate(ByteBuffer frame) throws IOException {
+        int typeOrdinal = frame.get();
+        if (typeOrdinal < 0 || typeOrdinal >= ZoneUpdate.Type.values().length)
+            throw new IOException("Invalid zone update type: " + Integer.toString(typeOrdinal));
+        String domain = BinaryProtocol.getString(frame);
+        String ip = BinaryProtocol.getString(frame);
+        return new ZoneUpdate(ZoneUpdate.Type.values()[typeOrdinal], domain, ip);
+    }
+
+    @Override
+    public String readQuery() throws IOException {
+        ByteBuffer frame = pendingFrame;
+        pendingFrame = null;
+        if (frame == null) frame = reader.readFrame();
+        if (frame == null) return null;
+
+        byte type = frame.get();
+        requestId = frame.getInt();
+        if (type != BinaryProtocol.QUERY) throw new IOException("Unexpected frame type: " + Byte.toString(type));
+        return BinaryProtocol.getString(frame);
+    }
+
+    @Override
+    public boolean hasNextQuery() throws IOException {
+        if (pendingFrame == null) pendingFrame = reader.readFrame();
+        return pendingFrame != null;
+    }
+
+    @Override
+    public boolean isQueryPending() throws IOException {
+        return pendingFrame != null || reader.isInputAvailable();
+    }
+
+    @Override
+    public void send(EncodedResponse response) throws IOException {
+        writer.writeFrame(response.binaryFrame, EncodedResponse.requestIdOffset, requestId);
+    }
+
+    @Override
+    public void sendMessage(String message) throws IOException {
+        ByteBuffer buffer = writer.beginFrame(BinaryProtocol.MESSAGE, requestId, BinaryProtocol.maxStringLength(message));
+        BinaryProtocol.putString(buffer, message);
+        writer.endFrame();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
@@ -0,0 +1,93 @@
+package DNSSEC.ServerPack;
+
+import DNSSEC.Common.BinaryProtocol;
+import DNSSEC.Common.NetworkTask;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Server side of a client connection, independent of the protocol used by the client
+ * <p>
+ * The protocol is negotiated by {@link #open(InputStream, OutputStream)}: binary clients start with
+ * {@link BinaryProtocol#magic}, all other clients use the line based text protocol.
+ */
+public abstract class ClientConnection {
+    protected String clientIp;
+
+
+    /**
+     * This method detects client protocol and reads client IP address.
+     */
+    public static ClientConnection open(InputStream inputStream, OutputStream outputStream) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(inputStream);
+        in.mark(1);
+        int first = in.read();
+        in.reset();
+
+        if (first == BinaryProtocol.magic[0]) return new BinaryClientConnection(in, outputStream);
+        else return new TextClientConnection(in, outputStream);
+    }
+
+    public final String clientIp() {
+        return clientIp;
+    }
+
+    /**
+     * This method packs the client IP address as a 128-bit key (see {@code NetworkTask.parseIPAddress}).
+     *
+     * @param address receives high 64 bits at index 0 and low 64 bits at index 1
+     * @return {@code false} if the client IP address is not valid
+     */
+    public boolean clientAddress(long[] address) {
+        return NetworkTask.parseIPAddress(clientIp, address);
+    }
+
+    /**
+     * This method blocks until the next request is received. If it is a zone update, it is read and returned;
+     * otherwise the query is kept for {@link #readQuery()}.
+     *
+     * @return the zone update, or {@code null} if the next request is a query or client closed the connection
+     */
+    public abstract ZoneUpdate readUpdate() throws IOException;
+
+    /**
+     * @return the next requested domain, or {@code null} if client closed the connection
+     */
+    public abstract String readQuery() throws IOException;
+
+    /**
+     * This method blocks until the next query is received or the connection is closed.
+     *
+     * @return {@code true} if another query can be read, otherwise {@code false}
+     */
+    public abstract boolean hasNextQuery() throws IOException;
+
+    /**
+     * @return {@code true} if another query has already been received and can be read without blocking
+     */
+    public abstract boolean isQueryPending() throws IOException;
+
+    public void sendAnswer(String domain, String ip, byte[] signature) throws IOException {
+        send(EncodedResponse.answer(domain, ip, signature));
+    }
+
+    public void sendNsec(String domainStart, String domainEnd, byte[] signature) throws IOException {
+        send(EncodedResponse.nsec(domainStart, domainEnd, signature));
+    }
+
+    /**
+     * This method sends a pre-encoded response without any allocation.
+     */
+    public abstract void send(EncodedResponse response) throws IOException;
+
+    public abstract void sendMessage(String message) throws IOException;
+
+    /**
+     * This method sends all buffered responses to client.
+     */
+    public abstract void flush() throws IOException;
+}
@@ -0,0 +1,145 @@
+package DNSSEC.ServerPack;
+
+import DNSSEC.Common.BinaryProtocol;
+import DNSSEC.Common.NetworkTask;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Connectionless binary protocol: one query frame per datagram and one response frame sent back to its source address
+ * <p>
+ * A single object is reused by a UDP worker thread for all datagrams it receives.
+ */
+class DatagramClientConnection extends ClientConnection {
+    private final BinaryProtocol.FrameWriter writer;
+
+    private SocketAddress source;
+    private final long[] sourceAddress = new long[2];   // packed address of the source (high and low 64 bits)
+    private boolean isSourceAddressValid;
+    private String query;
+    private ZoneUpdate update;
+    private int requestId;
+
+
+    DatagramClientConnection(DatagramChannel channel) {
+        writer = new BinaryProtocol.FrameWriter(new DatagramOutputStream(channel));
+    }
+
+    /**
+     * This method assigns the received datagram to this connection.
+     *
+     * @return {@code true} if the datagram contains a valid query frame, otherwise {@code false}
+     */
+    boolean receive(ByteBuffer datagram, SocketAddress source) {
+        this.source = source;
+        InetAddress address = ((InetSocketAddress) source).getAddress();
+        this.clientIp = address.getHostAddress();
+        // packed from the raw address, as the text form of a link-local IPv6 address has a zone ID (eg. %eth0)
+        this.isSourceAddressValid = NetworkTask.packIPAddress(address.getAddress(), sourceAddress);
+        this.query = null;
+        this.update = null;
+        writer.discard();   // a response left unsent by a failed datagram must not go to this source
+
+        try {
+            int length = datagram.getInt();
+            if (length != datagram.remaining()) return false;
+            byte type = datagram.get();
+            requestId = datagram.getInt();
+            if (type == BinaryProtocol.UPDATE) {
+                update = BinaryClientConnection.decodeUpdate(datagram);
+                return true;
+            }
+            if (type != BinaryProtocol.QUERY) return false;
+            query = BinaryProtocol.getString(datagram);
+            return true;
+        } catch (RuntimeException | IOException e) {
+            return false;   // truncated or malformed datagram
+        }
+    }
+
+    @Override
+    public boolean clientAddress(long[] address) {
+        address[0] = sourceAddress[0];
+        address[1] = sourceAddress[1];
+        return isSourceAddressValid;
+    }
+
+    @Override
+    public ZoneUpdate readUpdate() {
+        ZoneUpdate zoneUpdate = update;
+        update = null;
+        return zoneUpdate;
+    }
+
+    @Override
+    public String readQuery() {
+        String domain = query;
+        query = null;
+        return domain;
+    }
+
+    @Override
+    public boolean hasNextQuery() {
+        return false;   // one query per datagram
+    }
+
+    @Override
+    public boolean isQueryPending() {
+        return false;
+    }
+
+    @Override
+    public void send(EncodedResponse response) throws IOException {
+        writer.writeFrame(response.binaryFrame, EncodedResponse.requestIdOffset, requestId);
+    }
+
+    @Override
+    public void sendMessage(String message) throws IOException {
+        ByteBuffer buffer = writer.beginFrame(BinaryProtocol.MESSAGE, requestId, BinaryProtocol.maxStringLength(message));
+        BinaryProtocol.putString(buffer, message);
+        writer.endFrame();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+
+    /**
+     * Output stream which sends every write as a single datagram to the current source address
+     */
+    private class DatagramOutputStream extends OutputStream {
+        private final DatagramChannel channel;
+
+        // frame writer always writes from the same array, so its wrapper is reused
+        private byte[] wrappedArray = null;
+        private ByteBuffer wrapper;
+
+        DatagramOutputStream(DatagramChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (b != wrappedArray) {
+                wrappedArray = b;
+                wrapper = ByteBuffer.wrap(b);
+            }
+            wrapper.limit(off + len).position(off);
+            channel.send(wrapper, source);
+        }
+    }
+}
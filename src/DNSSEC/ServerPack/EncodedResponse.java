@@ -0,0 +1,87 @@
+package DNSSEC.ServerPack;
+
+import DNSSEC.Common.BinaryProtocol;
+import DNSSEC.Common.NSEC3Hash;
+import DNSSEC.Common.RSA_Cryptography;
+import DNSSEC.ServerPack.Security.NSEC;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Signed response (IP address or NSEC) encoded once for every protocol
+ * <p>
+ * All possible responses are known after the zone is signed, so they are encoded at that time and a request is
+ * answered by writing these bytes without any allocation.
+ */
+public final class EncodedResponse {
+    // offset of requestId in binary frame, which is the only part changed for every response
+    static final int requestIdOffset = 4 + 1;
+
+    final byte[] text;          // response line including line separator
+    final byte[] binaryFrame;   // complete frame with requestId 0
+
+
+    /**
+     * @param frame buffer filled exactly to its capacity
+     */
+    private EncodedResponse(String textLine, ByteBuffer frame) {
+        this.text = (textLine + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+
+        frame.putInt(0, frame.position() - 4);
+        this.binaryFrame = frame.array();
+    }
+
+    public static EncodedResponse answer(String domain, String ip, byte[] signature) {
+        return new EncodedResponse(domain + "," + ip + " " + RSA_Cryptography.toBase64(signature),
+                frame(BinaryProtocol.ANSWER, domain, ip, signature, 0));
+    }
+
+    public static EncodedResponse nsec(String domainStart, String domainEnd, byte[] signature) {
+        return new EncodedResponse(NSEC.header + " " + domainStart + "," + domainEnd + " " + RSA_Cryptography.toBase64(signature),
+                frame(BinaryProtocol.NSEC, domainStart, domainEnd, signature, 0));
+    }
+
+    /**
+     * Text line: {@code NSEC3 iterations salt hashStart,hashEnd signature}
+     */
+    public static EncodedResponse nsec3(String hashStart, String hashEnd, byte[] salt, int iterations, byte[] signature) {
+        ByteBuffer frame = frame(BinaryProtocol.NSEC3, hashStart, hashEnd, signature, 2 + salt.length + 2);
+        BinaryProtocol.putBytes(frame, salt);
+        frame.putShort((short) iterations);
+        return new EncodedResponse(NSEC3Hash.header + " " + Integer.toString(iterations) + " " + NSEC3Hash.saltString(salt) +
+                " " + hashStart + "," + hashEnd + " " + RSA_Cryptography.toBase64(signature), frame);
+    }
+
+    /**
+     * @param extraLength bytes put by the caller after the signature
+     * @return frame buffer of exact length, filled except for the extra bytes
+     */
+    private static ByteBuffer frame(byte type, String first, String second, byte[] signature, int extraLength) {
+        int length = BinaryProtocol.frameHeaderLength + BinaryProtocol.stringLength(first) +
+                BinaryProtocol.stringLength(second) + 2 + signature.length + extraLength;
+        ByteBuffer frame = ByteBuffer.allocate(length);
+        frame.putInt(0);   // placeholder for frame length
+        frame.put(type);
+        frame.putInt(0);   // placeholder for requestId
+        BinaryProtocol.putString(frame, first);
+        BinaryProtocol.putString(frame, second);
+        BinaryProtocol.putBytes(frame, signature);
+        return frame;
+    }
+
+    /**
+     * @return response line as sent by text protocol (including line separator)
+     */
+    public byte[] textBytes() {
+        return text;
+    }
+
+    /**
+     * @return response frame as sent by binary protocol (with requestId 0)
+     */
+    public byte[] binaryBytes() {
+        return binaryFrame.clone();
+    }
+}
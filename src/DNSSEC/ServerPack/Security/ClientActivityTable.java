@@ -0,0 +1,313 @@
+package DNSSEC.ServerPack.Security;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Concurrent and memory-bounded table of client activities
+ * <p>
+ * Clients are keyed by their 128-bit IP address (IPv4 addresses in IPv4-mapped form), so a lookup neither allocates
+ * nor hashes a string. The table is split into lock stripes by the address hash; each stripe is an open-addressing
+ * hash table (linear probing, keys in primitive arrays) which holds at most its share of {@code maxEntries} and evicts
+ * its least recently used client when full, so spoofed client IP addresses cannot grow the table without limit.
+ * <p>
+ * Idle clients are evicted by a hashed timing wheel in each stripe: an entry is linked into the wheel slot of its
+ * expiry time, and only the slots of the elapsed ticks are visited (when the stripe is used). An entry whose expiry
+ * time moved forward meanwhile is linked into its new slot, so requests never scan the table.
+ */
+class ClientActivityTable<V extends ClientActivityTable.Expirable> {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int stripeCount = 64;          // must be a power of two
+    private static final int wheelSize = 64;            // must be a power of two
+    private static final long tickMillis = 1000;
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private static final int initialStripeCapacity = 16;
+
+    private final Stripe[] stripes;
+    private final Supplier<V> factory;
+
+    private final LongAdder idleEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ClientActivityTable(int maxEntries, Supplier<V> factory) {
+        this.factory = factory;
+        int maxStripeEntries = Math.max(1, (maxEntries + stripeCount - 1) / stripeCount);
+        long currentTick = System.currentTimeMillis() / tickMillis;
+        stripes = (Stripe[]) new ClientActivityTable.Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) stripes[i] = new Stripe(maxStripeEntries, currentTick);
+    }
+
+    /**
+     * This method returns the activity of the client, creating it if it does not exist (or was evicted).
+     * The returned activity is not locked by the table.
+     *
+     * @param addressHigh high 64 bits of client IP address (see {@code NetworkTask.parseIPAddress})
+     * @param addressLow  low 64 bits of client IP address
+     */
+    V get(long addressHigh, long addressLow, long currentTime) {
+        int hash = hash(addressHigh, addressLow);
+        Stripe stripe = stripes[(hash >>> 16) & (stripeCount - 1)];
+        synchronized (stripe) {
+            stripe.expire(currentTime);
+
+            int index = stripe.indexOf(addressHigh, addressLow, hash);
+            Entry<V> entry = stripe.entries[index];
+            if (entry == null) {
+                entry = new Entry<>(addressHigh, addressLow, hash, factory.get());
+                stripe.insert(index, entry);
+                stripe.schedule(entry);
+                if (stripe.size > stripe.maxEntries) stripe.evictEldest();
+            } else {
+                stripe.touch(entry);
+            }
+            return entry.value;
+        }
+    }
+
+    /**
+     * @return the number of clients in the table
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of clients evicted after their activity expired
+     */
+    long idleEvictions() {
+        return idleEvictions.sum();
+    }
+
+    /**
+     * @return the number of clients evicted (least recently used first) because the table was full
+     */
+    long capacityEvictions() {
+        return capacityEvictions.sum();
+    }
+
+    String summary() {
+        return "clients=" + Integer.toString(size()) +
+                ", idle evictions=" + Long.toString(idleEvictions()) +
+                ", capacity evictions=" + Long.toString(capacityEvictions());
+    }
+
+
+    private static int hash(long addressHigh, long addressLow) {
+        long hash = (addressHigh * 0x9E3779B97F4A7C15L) + addressLow;
+        hash = (hash ^ (hash >>> 31)) * 0xBF58476D1CE4E5B9L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+
+    /**
+     * Activity kept in the table until its expiry time
+     */
+    interface Expirable {
+        /**
+         * @return time (in millisecond) after which the activity has no effect and can be forgotten
+         */
+        long expiryTime();
+    }
+
+
+    private static class Entry<V> {
+        final long addressHigh;
+        final long addressLow;
+        final int hash;
+        final V value;
+
+        // links of the wheel slot list
+        Entry<V> previous;
+        Entry<V> next;
+        int slot = -1;
+
+        // links of the least recently used list
+        Entry<V> lessRecent;
+        Entry<V> moreRecent;
+
+        Entry(long addressHigh, long addressLow, int hash, V value) {
+            this.addressHigh = addressHigh;
+            this.addressLow = addressLow;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+
+    private class Stripe {
+        final int maxEntries;
+        final int maxCapacity;
+
+        // open-addressing table, keys are kept apart from entries so that probing reads only primitive arrays
+        long[] addressHighs = new long[initialStripeCapacity];
+        long[] addressLows = new long[initialStripeCapacity];
+        Entry<V>[] entries = newEntries(initialStripeCapacity);
+        int size = 0;
+
+        // least recently used list
+        Entry<V> leastRecent;
+        Entry<V> mostRecent;
+
+        final Entry<V>[] wheel = newEntries(wheelSize);
+        long currentTick;
+
+        Stripe(int maxEntries, long currentTick) {
+            this.maxEntries = maxEntries;
+            this.maxCapacity = Integer.highestOneBit(Math.max(initialStripeCapacity, maxEntries * 2 - 1)) << 1;
+            this.currentTick = currentTick;
+        }
+
+        /**
+         * @return index of the client, or index of the empty slot where it should be inserted
+         */
+        int indexOf(long addressHigh, long addressLow, int hash) {
+            int mask = entries.length - 1;
+            int index = hash & mask;
+            while (entries[index] != null) {
+                if (addressLows[index] == addressLow && addressHighs[index] == addressHigh) return index;
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        void insert(int index, Entry<V> entry) {
+            addressHighs[index] = entry.addressHigh;
+            addressLows[index] = entry.addressLow;
+            entries[index] = entry;
+            size++;
+            linkMostRecent(entry);
+
+            // keep load factor at most 0.5
+            if (size * 2 > entries.length && entries.length < maxCapacity) resize(entries.length * 2);
+        }
+
+        void touch(Entry<V> entry) {
+            if (entry == mostRecent) return;
+            unlinkRecent(entry);
+            linkMostRecent(entry);
+        }
+
+        void remove(Entry<V> entry) {
+            unlinkRecent(entry);
+            unlinkWheel(entry);
+
+            // backward shift deletion, so that no tombstone is needed
+            int mask = entries.length - 1;
+            int hole = indexOf(entry.addressHigh, entry.addressLow, entry.hash);
+            entries[hole] = null;
+            size--;
+            for (int index = (hole + 1) & mask; entries[index] != null; index = (index + 1) & mask) {
+                int home = entries[index].hash & mask;
+                boolean isReachable = (hole <= index) ? (hole < home && home <= index) : (hole < home || home <= index);
+                if (isReachable) continue;
+
+                addressHighs[hole] = addressHighs[index];
+                addressLows[hole] = addressLows[index];
+                entries[hole] = entries[index];
+                entries[index] = null;
+                hole = index;
+            }
+        }
+
+        /**
+         * This method visits the wheel slots of all ticks elapsed since the previous call.
+         */
+        void expire(long currentTime) {
+            long tick = currentTime / tickMillis;
+            if (tick <= currentTick) return;
+
+            // a full turn visits every slot once
+            long firstTick = Math.max(currentTick + 1, tick - wheelSize + 1);
+            currentTick = tick;
+            for (long t = firstTick; t <= tick; t++) {
+                int slot = (int) t & (wheelSize - 1);
+                Entry<V> entry = wheel[slot];
+                wheel[slot] = null;
+                while (entry != null) {
+                    Entry<V> next = entry.next;
+                    entry.previous = entry.next = null;
+                    entry.slot = -1;
+
+                    if (entry.value.expiryTime() <= currentTime) {
+                        remove(entry);
+                        idleEvictions.increment();
+                    } else {
+                        schedule(entry);
+                    }
+                    entry = next;
+                }
+            }
+        }
+
+        void schedule(Entry<V> entry) {
+            // entries expiring in an already visited tick wait for the next tick
+            long tick = Math.max(entry.value.expiryTime() / tickMillis, currentTick + 1);
+            int slot = (int) tick & (wheelSize - 1);
+            entry.slot = slot;
+            entry.next = wheel[slot];
+            if (entry.next != null) entry.next.previous = entry;
+            wheel[slot] = entry;
+        }
+
+        void evictEldest() {
+            remove(leastRecent);
+            capacityEvictions.increment();
+        }
+
+        private void resize(int capacity) {
+            Entry<V>[] oldEntries = entries;
+            addressHighs = new long[capacity];
+            addressLows = new long[capacity];
+            entries = newEntries(capacity);
+            for (Entry<V> entry : oldEntries) {
+                if (entry == null) continue;
+                int index = indexOf(entry.addressHigh, entry.addressLow, entry.hash);
+                addressHighs[index] = entry.addressHigh;
+                addressLows[index] = entry.addressLow;
+                entries[index] = entry;
+            }
+        }
+
+        private void linkMostRecent(Entry<V> entry) {
+            entry.lessRecent = mostRecent;
+            entry.moreRecent = null;
+            if (mostRecent != null) mostRecent.moreRecent = entry;
+            else leastRecent = entry;
+            mostRecent = entry;
+        }
+
+        private void unlinkRecent(Entry<V> entry) {
+            if (entry.lessRecent != null) entry.lessRecent.moreRecent = entry.moreRecent;
+            else leastRecent = entry.moreRecent;
+            if (entry.moreRecent != null) entry.moreRecent.lessRecent = entry.lessRecent;
+            else mostRecent = entry.lessRecent;
+            entry.lessRecent = entry.moreRecent = null;
+        }
+
+        private void unlinkWheel(Entry<V> entry) {
+            if (entry.previous != null) entry.previous.next = entry.next;
+            else if (entry.slot >= 0) wheel[entry.slot] = entry.next;
+            if (entry.next != null) entry.next.previous = entry.previous;
+            entry.previous = entry.next = null;
+            entry.slot = -1;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Entry<V>[] newEntries(int length) {
+            return (Entry<V>[]) new Entry[length];
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package DNSSEC.ServerPack.Security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Compact sorted domain index which answers exact lookup and NSEC predecessor lookup in one walk
+ * <p>
+ * Domains are kept in {@code String} order (the order of the NSEC chain) in a single byte array. They are grouped in
+ * blocks of {@link #blockSize} domains; inside a block each domain is front-coded against the previous one and its last
+ * label (eg. {@code ".edu"}) is replaced by a one-byte reference into a shared suffix table:
+ * <pre>
+ * entry: [varint sharedPrefixLength][varint middleLength][middle bytes][byte suffixId]
+ * </pre>
+ * A lookup binary-searches the first domains of the blocks and then scans a single block.
+ * Domains must only contain characters up to {@code U+00FF}, which covers all DNS host names.
+ */
+class DomainIndex {
+    private static final int blockSize = 16;
+    private static final int maxSuffixes = 255;    // suffix ID 0 means no suffix
+
+    // per thread decoding buffer so that lookup does not allocate, shared by all indexes (zone snapshots) and grown to
+    // the longest domain
+    private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[64]);
+
+    private final byte[] data;
+    private final int[] blockOffsets;
+    private final byte[][] suffixes;
+    private final int size;
+    private final int maxLength;
+
+
+    private DomainIndex(byte[] data, int[] blockOffsets, byte[][] suffixes, int size, int maxLength) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.suffixes = suffixes;
+        this.size = size;
+        this.maxLength = maxLength;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * If the domain exists more than once, the index of the last one is returned.
+     *
+     * @return index of the domain if found, otherwise {@code (-(insertion point) - 1)} like {@code Collections.binarySearch}
+     */
+    int find(String domain) {
+        if (size == 0) return -1;
+        byte[] buffer = scratch.get();
+        if (buffer.length < maxLength) {
+            buffer = new byte[maxLength];
+            scratch.set(buffer);
+        }
+
+        // find the last block whose first domain is not greater than the requested domain
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int block = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int length = decodeFirst(middle, buffer);
+            if (compare(buffer, length, domain) <= 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (block < 0) return -1;
+
+        // scan the block
+        int index = block * blockSize;
+        int end = Math.min(index + blockSize, size);
+        int found = -1;
+        int insertionPoint = index;
+        int position = blockOffsets[block];
+        int length = 0;
+        for (; index < end; index++) {
+            int shared = readVarInt(position);
+            position += varIntLength(shared);
+            int middleLength = readVarInt(position);
+            position += varIntLength(middleLength);
+            System.arraycopy(data, position, buffer, shared, middleLength);
+            position += middleLength;
+            byte[] suffix = suffixes[data[position++] & 0xFF];
+            System.arraycopy(suffix, 0, buffer, shared + middleLength, suffix.length);
+            length = shared + middleLength + suffix.length;
+
+            int comparison = compare(buffer, length, domain);
+            if (comparison > 0) break;
+            if (comparison == 0) found = index;
+            insertionPoint = index + 1;
+        }
+        return (found >= 0) ? found : (-insertionPoint - 1);
+    }
+
+    /**
+     * This method decodes a domain, so it allocates and should not be used for every request.
+     */
+    String get(int index) {
+        Cursor cursor = cursor(index - (index % blockSize));
+        while (cursor.index() < index) cursor.next();
+        return cursor.current();
+    }
+
+    /**
+     * @return cursor positioned at the domain of the index (must be the first domain of a block)
+     */
+    Cursor cursor(int blockStartIndex) {
+        return new Cursor(blockStartIndex);
+    }
+
+    byte[][] suffixes() {
+        return suffixes;
+    }
+
+
+    private int decodeFirst(int block, byte[] buffer) {
+        int position = blockOffsets[block];
+        position += varIntLength(readVarInt(position));    // shared prefix length is always 0
+        int middleLength = readVarInt(position);
+        position += varIntLength(middleLength);
+        System.arraycopy(data, position, buffer, 0, middleLength);
+        byte[] suffix = suffixes[data[position + middleLength] & 0xFF];
+        System.arraycopy(suffix, 0, buffer, middleLength, suffix.length);
+        return middleLength + suffix.length;
+    }
+
+    private int readVarInt(int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) length++;
+        return length;
+    }
+
+    /**
+     * @return comparison in {@code String.compareTo} order between the encoded domain and the string
+     */
+    static int compare(byte[] bytes, int length, String string) {
+        int stringLength = string.length();
+        int limit = Math.min(length, stringLength);
+        for (int i = 0; i < limit; i++) {
+            int difference = (bytes[i] & 0xFF) - string.charAt(i);
+            if (difference != 0) return difference;
+        }
+        return length - stringLength;
+    }
+
+    static boolean isIndexable(String domain) {
+        for (int i = 0; i < domain.length(); i++) if (domain.charAt(i) > 0xFF) return false;
+        return true;
+    }
+
+    /**
+     * @return the most common last labels (eg. {@code ".edu"}) of the domains, to be shared by all domains
+     */
+    static byte[][] commonSuffixes(Iterable<String> domains) {
+        Map<String, Integer> suffixCounts = new HashMap<>();
+        for (String domain : domains) {
+            int dot = domain.lastIndexOf('.');
+            if (dot >= 0) suffixCounts.merge(domain.substring(dot), 1, Integer::sum);
+        }
+
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(suffixCounts.entrySet());
+        entries.sort((o1, o2) -> o2.getValue().compareTo(o1.getValue()));
+
+        List<byte[]> suffixes = new ArrayList<>();
+        suffixes.add(new byte[0]);
+        for (Map.Entry<String, Integer> entry : entries) {
+            if (suffixes.size() > maxSuffixes || entry.getValue() < 2) break;
+            suffixes.add(entry.getKey().getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return suffixes.toArray(new byte[0][]);
+    }
+
+
+    /**
+     * Sequential reader of the index, used for rebuilding it with zone updates
+     */
+    class Cursor {
+        private final byte[] buffer = new byte[maxLength];
+        private int length = 0;
+        private int index;
+        private int position;
+
+        private Cursor(int blockStartIndex) {
+            index = blockStartIndex - 1;
+            position = (blockStartIndex < size) ? blockOffsets[blockStartIndex / blockSize] : data.length;
+            next();
+        }
+
+        boolean hasCurrent() {
+            return index < size;
+        }
+
+        int index() {
+            return index;
+        }
+
+        void next() {
+            index++;
+            if (index >= size) return;
+
+            int shared = readVarInt(position);
+            position += varIntLength(shared);
+            int middleLength = readVarInt(position);
+            position += varIntLength(middleLength);
+            System.arraycopy(data, position, buffer, shared, middleLength);
+            position += middleLength;
+            byte[] suffix = suffixes[data[position++] & 0xFF];
+            System.arraycopy(suffix, 0, buffer, shared + middleLength, suffix.length);
+            length = shared + middleLength + suffix.length;
+        }
+
+        int compareTo(String domain) {
+            return compare(buffer, length, domain);
+        }
+
+        String current() {
+            return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+        }
+
+        void copyTo(Builder builder) {
+            builder.add(buffer, length);
+        }
+    }
+
+
+    /**
+     * Builds an index from domains added in sorted order
+     */
+    static class Builder {
+        private final byte[][] suffixes;
+        private final Map<String, Integer> suffixIds = new HashMap<>();
+
+        private byte[] data = new byte[1024];
+        private int dataLength = 0;
+        private int[] blockOffsets = new int[16];
+        private int size = 0;
+        private int maxLength = 1;
+
+        private byte[] previous = new byte[64];
+        private int previousLength = 0;
+
+        Builder(byte[][] suffixes) {
+            this.suffixes = suffixes;
+            for (int i = 1; i < suffixes.length; i++)
+                suffixIds.put(new String(suffixes[i], StandardCharsets.ISO_8859_1), i);
+        }
+
+        void add(String domain) {
+            if (!isIndexable(domain)) throw new IllegalArgumentException("Domain cannot be indexed: " + domain);
+            byte[] bytes = domain.getBytes(StandardCharsets.ISO_8859_1);
+            add(bytes, bytes.length);
+        }
+
+        void add(byte[] bytes, int length) {
+            // start a new block or share prefix with the previous domain
+            int shared = 0;
+            if ((size % blockSize) == 0) {
+                if ((size / blockSize) == blockOffsets.length) blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+                blockOffsets[size / blockSize] = dataLength;
+            } else {
+                int limit = Math.min(length, previousLength);
+                while (shared < limit && bytes[shared] == previous[shared]) shared++;
+            }
+
+            // replace the last label by a shared suffix if it does not overlap the shared prefix
+            int suffixId = 0;
+            int dot = length - 1;
+            while (dot >= 0 && bytes[dot] != '.') dot--;
+            if (dot >= shared) {
+                Integer id = suffixIds.get(new String(bytes, dot, length - dot, StandardCharsets.ISO_8859_1));
+                if (id != null) suffixId = id;
+            }
+            int middleLength = length - shared - suffixes[suffixId].length;
+
+            // write entry
+            ensureCapacity(10 + middleLength + 1);
+            writeVarInt(shared);
+            writeVarInt(middleLength);
+            System.arraycopy(bytes, shared, data, dataLength, middleLength);
+            dataLength += middleLength;
+            data[dataLength++] = (byte) suffixId;
+
+            // keep the domain for the next prefix
+            if (previous.length < length) previous = new byte[Math.max(length, previous.length * 2)];
+            System.arraycopy(bytes, 0, previous, 0, length);
+            previousLength = length;
+            maxLength = Math.max(maxLength, length);
+            size++;
+        }
+
+        DomainIndex build() {
+            int blockCount = (size + blockSize - 1) / blockSize;
+            return new DomainIndex(Arrays.copyOf(data, dataLength), Arrays.copyOf(blockOffsets, blockCount),
+                    suffixes, size, maxLength);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[dataLength++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[dataLength++] = (byte) value;
+        }
+
+        private void ensureCapacity(int extraLength) {
+            if (dataLength + extraLength > data.length)
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + extraLength));
+        }
+    }
+}
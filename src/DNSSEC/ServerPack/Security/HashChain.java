@@ -0,0 +1,181 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.Log;
+import DNSSEC.Common.NSEC3Hash;
+import DNSSEC.ServerPack.EncodedResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Immutable sorted chain of hashed owner names with a signed NSEC3 response for every gap
+ * <p>
+ * Hashes are kept back to back in a single array of fixed-width entries, so a lookup is a binary search over
+ * {@link NSEC3Hash#hashLength}-byte keys without any object. Gap {@code i} lies between hash {@code i} and hash
+ * {@code i + 1}; the last gap wraps around to the first hash.
+ * <p>
+ * The chain is built by a pipeline whose stages are parallel: hashing (which costs {@code iterations + 1} digests per
+ * domain), sorting and signing.
+ */
+class HashChain {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int hashingThreads = Runtime.getRuntime().availableProcessors();
+
+    private static final int domainsPerTask = 64;   // domains hashed by a worker without splitting further
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private static final int hashLength = NSEC3Hash.hashLength;
+
+    private final byte[] hashes;
+    private final EncodedResponse[] gapResponses;
+
+
+    private HashChain(byte[] hashes, EncodedResponse[] gapResponses) {
+        this.hashes = hashes;
+        this.gapResponses = gapResponses;
+    }
+
+    /**
+     * Domains which are not valid owner names are skipped.
+     */
+    static HashChain build(String[] domains, byte[] salt, int iterations, ZoneSigner signer) {
+        long startTime = System.nanoTime();
+
+        // hash all domains in parallel
+        byte[][] domainHashes = new byte[domains.length][];
+        HashTask task = new HashTask(domains, salt, iterations, domainHashes, 0, domains.length);
+        if (domains.length <= domainsPerTask) {
+            task.compute();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(hashingThreads);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long hashedTime = System.nanoTime();
+
+        // sort hashes and pack them into fixed-width entries (duplicate domains have the same hash)
+        Arrays.parallelSort(domainHashes, (first, second) -> {
+            if (first == null || second == null) return (first == null) ? ((second == null) ? 0 : 1) : -1;
+            return NSEC3Hash.compare(first, 0, second, 0);
+        });
+        byte[] hashes = new byte[domainHashes.length * hashLength];
+        int size = 0;
+        for (byte[] hash : domainHashes) {
+            if (hash == null) break;    // invalid owner names are sorted to the end
+            if (size > 0 && NSEC3Hash.compare(hashes, (size - 1) * hashLength, hash, 0) == 0) continue;
+            System.arraycopy(hash, 0, hashes, size * hashLength, hashLength);
+            size++;
+        }
+        hashes = Arrays.copyOf(hashes, size * hashLength);
+        long sortedTime = System.nanoTime();
+
+        // sign every gap of the chain in parallel
+        String[] hashStrings = new String[size];
+        for (int i = 0; i < size; i++)
+            hashStrings[i] = NSEC3Hash.toBase32Hex(Arrays.copyOfRange(hashes, i * hashLength, (i + 1) * hashLength));
+        String[] gapMessages = new String[size];
+        for (int i = 0; i < size; i++)
+            gapMessages[i] = NSEC3Hash.gapMessage(hashStrings[i], hashStrings[(i + 1) % size], salt, iterations);
+        byte[][] gapSignatures = signer.sign(gapMessages);
+
+        EncodedResponse[] gapResponses = new EncodedResponse[size];
+        for (int i = 0; i < size; i++) {
+            byte[] signature = gapSignatures[i];
+            if (signature == null) {
+                Log.error("NSEC3 gap cannot be signed: " + hashStrings[i]);
+                signature = new byte[0];
+            }
+            gapResponses[i] = EncodedResponse.nsec3(hashStrings[i], hashStrings[(i + 1) % size], salt, iterations, signature);
+        }
+        long signedTime = System.nanoTime();
+
+        Log.info("NSEC3 chain built: ", Integer.toString(size) + " hashes, " + Integer.toString(iterations) +
+                " iterations in " + millis(signedTime - startTime) + " msec (hashing " + millis(hashedTime - startTime) +
+                ", sorting " + millis(sortedTime - hashedTime) + ", signing " + millis(signedTime - sortedTime) + ")");
+        return new HashChain(hashes, gapResponses);
+    }
+
+    /**
+     * A hash in the chain is not covered by any gap (the gap starting at it does not cover it), so it cannot be denied.
+     *
+     * @param hash {@link NSEC3Hash#hashLength} bytes
+     * @return index of the hash if it is in the chain, otherwise {@code (-(index of the gap covering it) - 1)}
+     */
+    int find(byte[] hash) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = NSEC3Hash.compare(hashes, middle * hashLength, hash, 0);
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return middle;
+        }
+
+        // gap before the first hash is the wrapping last gap
+        return -((low == 0) ? size() - 1 : low - 1) - 1;
+    }
+
+    EncodedResponse gapResponse(int gapIndex) {
+        return gapResponses[gapIndex];
+    }
+
+    /**
+     * @return the number of hashes (and gaps) in the chain
+     */
+    int size() {
+        return gapResponses.length;
+    }
+
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+
+    private static class HashTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] domains;
+        private final byte[] salt;
+        private final int iterations;
+        private final byte[][] hashes;
+        private final int start;
+        private final int end;
+
+        HashTask(String[] domains, byte[] salt, int iterations, byte[][] hashes, int start, int end) {
+            this.domains = domains;
+            this.salt = salt;
+            this.iterations = iterations;
+            this.hashes = hashes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if ((end - start) > domainsPerTask) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new HashTask(domains, salt, iterations, hashes, start, middle),
+                        new HashTask(domains, salt, iterations, hashes, middle, end));
+                return;
+            }
+
+            byte[] ownerName = new byte[NSEC3Hash.maxOwnerNameLength];
+            for (int i = start; i < end; i++) {
+                int ownerNameLength = NSEC3Hash.ownerName(domains[i], ownerName);
+                if (ownerNameLength < 0) continue;
+                hashes[i] = new byte[hashLength];
+                NSEC3Hash.hash(ownerName, ownerNameLength, salt, iterations, hashes[i]);
+            }
+        }
+    }
+}
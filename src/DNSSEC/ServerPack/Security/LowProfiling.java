@@ -1,9 +1,13 @@
 package DNSSEC.ServerPack.Security;
 
+import DNSSEC.Common.Log;
 import DNSSEC.Common.NetworkTask;
+import DNSSEC.ServerPack.ClientConnection;
 import DNSSEC.ServerPack.Server;
+import DNSSEC.ServerPack.ServerMetrics.ResponseType;
+import DNSSEC.ServerPack.ZoneUpdate;
 
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -17,12 +21,17 @@ public class LowProfiling extends Server {
 
     private static final long suspiciousClientBlockTimeElapsed = 120000;    // in millisecond
 
+    private static final int maxClientActivities = 100000;  // least recently used clients are evicted beyond it
+
     // ---------- Configurable Data (end) ---------- //
 
 
     private final int totalSuspiciousRecordsForEachClient;
 
-    private Map<String, Activity> clientRecordMap;
+    private ClientActivityTable<Activity> clientActivities;
+
+    // per thread buffer for parsed client IP address (high and low 64 bits)
+    private static final ThreadLocal<long[]> clientAddress = ThreadLocal.withInitial(() -> new long[2]);
 
 
     public LowProfiling(int totalSuspiciousRecordsForEachClient) {
@@ -33,47 +42,112 @@ public class LowProfiling extends Server {
     public void setupServer() {
         NSEC.initialize();
 
-        clientRecordMap = new HashMap<>();
+        clientActivities = new ClientActivityTable<>(maxClientActivities, Activity::new);
+    }
+
+    @Override
+    protected void teardownServer() {
+        Log.info("Client activities: ", clientActivities.summary());
+    }
+
+    /**
+     * @return the number of clients whose activity is kept
+     */
+    public int clientActivityCount() {
+        return clientActivities.size();
+    }
+
+    /**
+     * @return the number of clients forgotten after their activity expired
+     */
+    public long clientActivityIdleEvictions() {
+        return clientActivities.idleEvictions();
+    }
+
+    /**
+     * @return the number of clients forgotten because the activity table was full
+     */
+    public long clientActivityCapacityEvictions() {
+        return clientActivities.capacityEvictions();
+    }
+
+    @Override
+    protected List<ZoneUpdate> applyZoneUpdates(List<ZoneUpdate> updates) {
+        return NSEC.applyUpdates(updates);
+    }
+
+    @Override
+    public int domainCount() {
+        return NSEC.zone.size();
     }
 
     @Override
-    protected void respond(Scanner in, PrintWriter out, String clientIp) {
+    protected void respond(ClientConnection connection, String clientIp) throws IOException {
         // get and print client's requested domain name
-        String domain = in.nextLine();
-        System.out.println("Request string: " + domain);
+        String domain = connection.readQuery();
+        if (domain == null) return;
+        Log.debug("Request string: ", domain);
+        long startTime = System.nanoTime();
+
+        // find existing domain or NSEC gap once for both activity check and response
+        Zone zone = NSEC.zone;
+        int index = zone.find(domain);
 
         // check if client request is legitimate
-        if (isRequestLegitimate(clientIp, domain, out)) {
+        // the connection packs the address itself (from the raw source address of a datagram)
+        long[] address = clientAddress.get();
+        boolean isValidAddress = connection.clientAddress(address);
+        if (isRequestLegitimate(isValidAddress ? address : null, domainOrdinal(index), connection)) {
             // respond to the client
-            NSEC.respondCore(in, out, domain);
+            metrics().recordResponse(NSEC.respondCore(connection, zone, domain, index), startTime);
+        } else {
+            metrics().recordResponse(ResponseType.BLOCKED, startTime);
         }
 
-        System.out.println();
+        Log.debug("");
+    }
+
+    /**
+     * This method maps a requested domain to its position in the sorted zone, so that lexicographical order of requests
+     * is compared as integers: existing domain {@code i} is {@code 2i + 1} and any domain inside NSEC gap {@code g}
+     * (between domains {@code g - 1} and {@code g}) is {@code 2g}. Domains inside the same gap have the same ordinal.
+     *
+     * @param index result of {@code Zone.find}
+     */
+    static int domainOrdinal(int index) {
+        return (index >= 0) ? (2 * index + 1) : (2 * (-index - 1));
     }
 
     /**
      * This method checks if client request is legitimate.
      * If not legitimate, it also notifies the suspicious client.
      */
-    private boolean isRequestLegitimate(String clientIp, String domain, PrintWriter out) {
-        // check if valid client IP address
-        if (!NetworkTask.isValid_IP4_address(clientIp)) {
-            out.println("Client IP address is not valid.");
-            System.out.println("Response sent for invalid client IP address.");
+    boolean isRequestLegitimate(String clientIp, int domainOrdinal, ClientConnection connection) throws IOException {
+        long[] address = clientAddress.get();
+        boolean isValidAddress = NetworkTask.parseIPAddress(clientIp, address);
+        return isRequestLegitimate(isValidAddress ? address : null, domainOrdinal, connection);
+    }
+
+    /**
+     * @param address packed client IP address (high and low 64 bits), or {@code null} if it is not valid
+     */
+    private boolean isRequestLegitimate(long[] address, int domainOrdinal, ClientConnection connection)
+            throws IOException {
+        // check if valid client IP address (IPv4 or IPv6)
+        if (address == null) {
+            connection.sendMessage("Client IP address is not valid.");
+            Log.debug("Response sent for invalid client IP address.");
             return false;
         }
 
         // get the activity corresponding to the client IP address
-        Activity activity = clientRecordMap.get(clientIp);
-        if (activity == null) {
-            activity = new Activity();
-            clientRecordMap.put(clientIp, activity);
-        }
+        long currentTime = System.currentTimeMillis();
+        Activity activity = clientActivities.get(address[0], address[1], currentTime);
 
         // check if client request suspicious
-        if (activity.isSuspicious(domain)) {
-            out.println("This client IP address is blocked for suspicious activity. Please try later.");
-            System.out.println("Response sent for being blocked for suspicious activity.");
+        if (activity.isSuspicious(domainOrdinal, currentTime)) {
+            connection.sendMessage("This client IP address is blocked for suspicious activity. Please try later.");
+            Log.debug("Response sent for being blocked for suspicious activity.");
             return false;
         }
 
@@ -82,15 +156,37 @@ public class LowProfiling extends Server {
     }
 
 
-    private class Activity {
-        private LinkedList<Record> requestRecords = new LinkedList<>();
+    /**
+     * Sliding window of the latest requests of a client, kept in a fixed-capacity ring buffer of primitives
+     * (request time and domain ordinal), so recording a request does not allocate.
+     * Ordinals are taken from the zone snapshot of each request; after a zone update they may be slightly out of order,
+     * which only makes the window restart earlier or later.
+     */
+    private class Activity implements ClientActivityTable.Expirable {
+        private final long[] requestTimes;
+        private final int[] requestDomainOrdinals;
+        private int firstRecord = 0;
+        private int totalRecords = 0;
 
         private boolean isSuspicious = false;
         private long blockTime;
 
-        public boolean isSuspicious(String domain) {
-            long currentTime = System.currentTimeMillis();
+        // updated on every request, read by the activity table for idle eviction
+        private volatile long expiryTime = System.currentTimeMillis() + oldRecordCleanupTimeElapsed;
+
+        Activity() {
+            int capacity = Math.max(1, totalSuspiciousRecordsForEachClient);
+            requestTimes = new long[capacity];
+            requestDomainOrdinals = new int[capacity];
+        }
+
+        @Override
+        public long expiryTime() {
+            return expiryTime;
+        }
 
+        // the same client may send requests through more than one connection at a time
+        public synchronized boolean isSuspicious(int domainOrdinal, long currentTime) {
             // check if already suspicious activity found and within block time period
             if (isSuspicious && ((currentTime - blockTime) < suspiciousClientBlockTimeElapsed)) return true;
 
@@ -98,54 +194,49 @@ public class LowProfiling extends Server {
             isSuspicious = false;
 
             // cleanup old request records
-            cleanupOldRecords();
+            cleanupOldRecords(currentTime);
 
             // check if suspicious
-            if (!requestRecords.isEmpty()) {
-                Record lastRecord = requestRecords.getLast();
+            if (totalRecords > 0) {
+                int lastDomainOrdinal = requestDomainOrdinals[recordIndex(totalRecords - 1)];
 
                 // check if requested domain breaks lexicographical order (not suspicious)
-                if (lastRecord.domain.compareTo(domain) >= 0) {
-                    requestRecords.clear();
+                if (lastDomainOrdinal >= domainOrdinal) {
+                    totalRecords = 0;
                 }
                 // check if previous requests in lexicographical order exceeds the constant (suspicious)
-                else if (requestRecords.size() >= totalSuspiciousRecordsForEachClient) {
+                else if (totalRecords >= totalSuspiciousRecordsForEachClient) {
                     isSuspicious = true;
-                    requestRecords.removeFirst();
+                    removeFirstRecord();
                 }
             }
 
             // add domain request to activity record
-            Record record = new Record(domain);
-            requestRecords.add(record);
+            int index = recordIndex(totalRecords);
+            requestTimes[index] = currentTime;
+            requestDomainOrdinals[index] = domainOrdinal;
+            totalRecords++;
 
             // assign blockTime (if suspicious) and return result
             blockTime = currentTime;
+            expiryTime = currentTime + Math.max(oldRecordCleanupTimeElapsed, suspiciousClientBlockTimeElapsed);
             return isSuspicious;
         }
 
-        private void cleanupOldRecords() {
-            long currentTime = System.currentTimeMillis();
-            for (Iterator<Record> iterator = requestRecords.iterator(); iterator.hasNext(); ) {
-                Record record = iterator.next();
-                if ((currentTime - record.time) >= oldRecordCleanupTimeElapsed) {
-                    iterator.remove();
-                } else {
-                    break;
-                }
+        private void cleanupOldRecords(long currentTime) {
+            while (totalRecords > 0 && (currentTime - requestTimes[firstRecord]) >= oldRecordCleanupTimeElapsed) {
+                removeFirstRecord();
             }
         }
 
+        private void removeFirstRecord() {
+            firstRecord = recordIndex(1);
+            totalRecords--;
+        }
 
-        private class Record {
-            public String domain;
-            public long time;
-
-            public Record(String domain) {
-                this.domain = domain;
-                this.time = System.currentTimeMillis();
-            }
+        private int recordIndex(int position) {
+            int index = firstRecord + position;
+            return (index < requestTimes.length) ? index : (index - requestTimes.length);
         }
     }
 }
-
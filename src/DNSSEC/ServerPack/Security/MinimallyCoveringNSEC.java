@@ -0,0 +1,270 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.LatencyHistogram;
+import DNSSEC.Common.Log;
+import DNSSEC.Common.SignatureAlgorithm;
+import DNSSEC.ServerPack.ClientConnection;
+import DNSSEC.ServerPack.EncodedResponse;
+import DNSSEC.ServerPack.Server;
+import DNSSEC.ServerPack.ServerMetrics.ResponseType;
+import DNSSEC.ServerPack.ZoneUpdate;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Implementation of minimally covering NSEC ("white lies", RFC 4470)
+ * <p>
+ * Existing domains are answered from the same signed zone as {@link NSEC}. A non-existing domain is answered by a range
+ * which is signed at query time and covers only the requested domain: it starts just before the domain and ends just
+ * after it, but never beyond the real neighbours of the domain. The response is an ordinary NSEC response, so clients
+ * verify it as usual, but its end is not an existing domain and the zone cannot be walked.
+ * <p>
+ * Signing is done by a fixed pool of signing workers, each with its own signer. Recently signed ranges are kept in a
+ * bounded least recently used cache, and concurrent queries for the same range share one signature. If the signing
+ * queue is full, the query is answered with a message instead of waiting.
+ */
+public class MinimallyCoveringNSEC extends Server {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int signingThreads = Runtime.getRuntime().availableProcessors();
+    private static final int signingQueueCapacity = 1024;
+
+    private static final int maxCachedRanges = 10000;
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private static final char firstDomainChar = NSEC.startDomainBound.charAt(0);
+    private static final char lastDomainChar = NSEC.endDomainBound.charAt(0);
+
+    private final SignedRangeCache cache = new SignedRangeCache(maxCachedRanges);
+
+    // ranges which are being signed, so that concurrent queries of the same range wait for one signature
+    private final ConcurrentHashMap<String, CompletableFuture<EncodedResponse>> signingRanges = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<SignatureAlgorithm.Signer> workerSigner;
+    private final ThreadPoolExecutor signingWorkers;
+
+    private final LatencyHistogram signingLatency = new LatencyHistogram();    // queue wait and signing of a range
+    private final LatencyHistogram denialLatency = new LatencyHistogram();     // lookup to response of a denial
+    private final LongAdder rejectedSignings = new LongAdder();
+
+
+    public MinimallyCoveringNSEC() {
+        SignatureAlgorithm algorithm = signatureAlgorithm;
+        this.workerSigner = ThreadLocal.withInitial(() -> {
+            try {
+                return algorithm.newSigner(privateKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.signingWorkers = new ThreadPoolExecutor(signingThreads, signingThreads,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(signingQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "signer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void setupServer() {
+        // signed answers of existing domains
+        NSEC.initialize();
+    }
+
+    @Override
+    protected void teardownServer() {
+        Log.info("Minimally covering NSEC: ", cache.summary() + ", rejected signings=" +
+                Long.toString(rejectedSignings.sum()));
+        Log.info("Online signing latency: ", signingLatency.summary());
+        Log.info("Denial latency: ", denialLatency.summary());
+    }
+
+    @Override
+    protected List<ZoneUpdate> applyZoneUpdates(List<ZoneUpdate> updates) {
+        // cached ranges belong to the previous zone snapshot, so they are not used any more
+        return NSEC.applyUpdates(updates);
+    }
+
+    @Override
+    public int domainCount() {
+        return NSEC.zone.size();
+    }
+
+    /**
+     * @return latency of signing a range at query time, including the wait in the signing queue
+     */
+    public LatencyHistogram signingLatency() {
+        return signingLatency;
+    }
+
+    /**
+     * @return latency of answering a non-existing domain, whether its range is cached or signed
+     */
+    public LatencyHistogram denialLatency() {
+        return denialLatency;
+    }
+
+    public long cacheHits() {
+        return cache.hits();
+    }
+
+    public long cacheMisses() {
+        return cache.misses();
+    }
+
+    public long rejectedSignings() {
+        return rejectedSignings.sum();
+    }
+
+    @Override
+    protected void respond(ClientConnection connection, String clientIp) throws IOException {
+        // get and print client's requested domain name
+        String domain = connection.readQuery();
+        if (domain == null) return;
+        Log.debug("Request string: ", domain);
+
+        // respond to the client
+        long startTime = System.nanoTime();
+        metrics().recordResponse(respondCore(connection, domain), startTime);
+
+        Log.debug("");
+    }
+
+    ResponseType respondCore(ClientConnection connection, String domain) throws IOException {
+        // handle request for existing domain
+        Zone zone = NSEC.zone;
+        int index = zone.find(domain);
+        if (index >= 0) {
+            EncodedResponse response = zone.recordResponse(index);
+            connection.send(response);
+            Log.debug("Response sent to client: ", response.textBytes());
+            return ResponseType.ANSWER;
+        }
+
+        // handle invalid characters (may happens) and probable invisible characters (very very rare case)
+        if (!NSEC.isValidDomain(domain)) {
+            connection.sendMessage("Request is completely invalid: probable invisible character found.");
+            Log.debug("Response sent for probable invisible character.");
+            return ResponseType.INVALID;
+        }
+
+        // minimal range around the domain inside its real gap
+        long startTime = System.nanoTime();
+        int gapIndex = -index - 1;
+        String start = max(zone.gapStart(gapIndex), predecessor(domain));
+        String end = min(zone.gapEnd(gapIndex), successor(domain));
+        if (!NSEC.isValidDomain(start) || !NSEC.isValidDomain(end)) {
+            // a range end with a separator could be read back as another range, so the real gap is sent instead
+            EncodedResponse response = zone.gapResponse(gapIndex);
+            connection.send(response);
+            Log.debug("Response sent to client for NSEC: ", response.textBytes());
+            return ResponseType.DENIAL;
+        }
+        String range = start + "," + end;
+
+        EncodedResponse response = cache.get(range, zone);
+        if (response == null) response = signRange(range, start, end, zone);
+        if (response == null) {
+            connection.sendMessage("Server is busy: non-existing domain cannot be signed now.");
+            Log.debug("Response sent for busy signing workers.");
+            return ResponseType.BUSY;
+        }
+        connection.send(response);
+        denialLatency.record(System.nanoTime() - startTime);
+        Log.debug("Response sent to client for minimally covering NSEC: ", response.textBytes());
+        return ResponseType.DENIAL;
+    }
+
+    /**
+     * This method waits for the signature of the range from a signing worker.
+     *
+     * @return signed response of the range, or {@code null} if it cannot be signed (signing queue is full)
+     */
+    private EncodedResponse signRange(String range, String start, String end, Zone zone) {
+        CompletableFuture<EncodedResponse> signing = new CompletableFuture<>();
+        CompletableFuture<EncodedResponse> existingSigning = signingRanges.putIfAbsent(range, signing);
+        if (existingSigning != null) return waitForSignature(range, existingSigning);
+
+        long submitTime = System.nanoTime();
+        try {
+            signingWorkers.execute(() -> {
+                try {
+                    EncodedResponse response = EncodedResponse.nsec(start, end, workerSigner.get().sign(range));
+                    cache.put(range, zone, response);
+                    signingLatency.record(System.nanoTime() - submitTime);
+                    signing.complete(response);
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    signing.completeExceptionally(e);
+                } finally {
+                    signingRanges.remove(range, signing);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            signingRanges.remove(range, signing);
+            rejectedSignings.increment();
+            return null;
+        }
+        return waitForSignature(range, signing);
+    }
+
+    private static EncodedResponse waitForSignature(String range, CompletableFuture<EncodedResponse> signing) {
+        try {
+            return signing.get();
+        } catch (ExecutionException e) {
+            Log.error("Range cannot be signed: " + range + " (" + e.getCause() + ")");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+
+    /**
+     * The separator characters (',' and ' ') are skipped, because a range end containing them could be read back as a
+     * different range from the same signed message.
+     *
+     * @return a string which is less than the domain and greater than almost every string less than it
+     */
+    static String predecessor(String domain) {
+        int lastIndex = domain.length() - 1;
+        char lastChar = domain.charAt(lastIndex);
+        if (lastChar <= firstDomainChar) return domain.substring(0, lastIndex);
+        char previousChar = (char) (lastChar - 1);
+        if (previousChar == ',') previousChar--;
+        return domain.substring(0, lastIndex) + previousChar + lastDomainChar;
+    }
+
+    /**
+     * @return a string which is greater than the domain and less than almost every string greater than it
+     */
+    static String successor(String domain) {
+        return domain + firstDomainChar;
+    }
+
+    private static String max(String first, String second) {
+        return (first.compareTo(second) >= 0) ? first : second;
+    }
+
+    private static String min(String first, String second) {
+        return (first.compareTo(second) <= 0) ? first : second;
+    }
+}
@@ -1,14 +1,14 @@
 package DNSSEC.ServerPack.Security;
 
+import DNSSEC.Common.Log;
+import DNSSEC.ServerPack.ClientConnection;
+import DNSSEC.ServerPack.EncodedResponse;
 import DNSSEC.ServerPack.Server;
+import DNSSEC.ServerPack.ServerMetrics.ResponseType;
+import DNSSEC.ServerPack.ZoneImage;
+import DNSSEC.ServerPack.ZoneUpdate;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -21,14 +21,11 @@ public class NSEC extends Server {
     public static final String startDomainBound = "!";
     public static final String endDomainBound = "~";
 
-    // domain-DomainIpSignature mapping for faster detection and response
-    static Map<String, DomainIpSignature> domainIpSignatureMap = null;
+    // current zone snapshot, replaced (never changed) by zone updates so that readers need no lock
+    static volatile Zone zone = null;
 
-    // store only domains for non-existed domain response certificates
-    static List<String> domainList;
-
-    // store non-existed domain response certificates
-    static List<String> nonExistedDomainCerts;
+    private static final Object zoneUpdateLock = new Object();
+    private static ZoneSigner updateSigner = null;     // kept for all zone updates, guarded by zoneUpdateLock
 
 
     @Override
@@ -36,90 +33,162 @@ public class NSEC extends Server {
         initialize();
     }
 
-    static void initialize() {
+    static synchronized void initialize() {
         // check if already initialized
-        if (domainIpSignatureMap != null) return;
-
-        // assign new objects
-        domainIpSignatureMap = new HashMap<>(domainIpList.size());
-        domainList = new ArrayList<>(domainIpList.size() + 2);
-        nonExistedDomainCerts = new ArrayList<>(domainIpList.size() + 1);
-
-        // create domain-DomainIpSignature mapping
-        domainList.add(startDomainBound);
-        for (DomainIp domainIp : domainIpList) {
-            try {
-                String signature = rsa.getSignatureFromHash(Integer.toString(domainIp.toString().hashCode()), privateKey);
-                domainIpSignatureMap.put(domainIp.domain, new DomainIpSignature(domainIp, signature));
-                domainList.add(domainIp.domain);
-            } catch (NoSuchAlgorithmException | NoSuchPaddingException | IllegalBlockSizeException | UnsupportedEncodingException | InvalidKeyException | BadPaddingException e) {
-                e.printStackTrace();
-            }
+        if (zone != null) return;
+
+        // use signatures from pre-signed zone image if available
+        if (zoneImage != null) zone = loadZone(domainIpList, zoneImage);
+        else zone = signZone(domainIpList, true);
+    }
+
+    /**
+     * @param domainIps sorted domain-IP records of the image
+     */
+    static Zone loadZone(List<DomainIp> domainIps, ZoneImage image) {
+        // index all domains once, sharing common prefixes and suffixes
+        List<String> domains = new ArrayList<>(domainIps.size());
+        for (DomainIp domainIp : domainIps) domains.add(domainIp.domain);
+        DomainIndex.Builder indexBuilder = new DomainIndex.Builder(DomainIndex.commonSuffixes(domains));
+
+        String[] ips = new String[domainIps.size()];
+        for (int i = 0; i < ips.length; i++) {
+            indexBuilder.add(domains.get(i));
+            ips[i] = domainIps.get(i).ip;
+        }
+        return new Zone(indexBuilder.build(), ips, image.readRecordSignatures(), image.readGapSignatures());
+    }
+
+    /**
+     * @param domainIps sorted domain-IP records (records which cannot be signed are left out of the zone)
+     * @param isImageSaved whether pre-signed zone image is written for the next startup
+     */
+    static Zone signZone(List<DomainIp> domainIps, boolean isImageSaved) {
+        List<String> domains = new ArrayList<>(domainIps.size());
+        for (DomainIp domainIp : domainIps) domains.add(domainIp.domain);
+        DomainIndex.Builder indexBuilder = new DomainIndex.Builder(DomainIndex.commonSuffixes(domains));
+
+        ZoneSigner signer = new ZoneSigner(signatureAlgorithm, privateKey);
+
+        // sign all domainIp records
+        String[] recordMessages = new String[domainIps.size()];
+        for (int i = 0; i < recordMessages.length; i++) recordMessages[i] = domainIps.get(i).toString();
+        byte[][] recordSignatures = signer.sign(recordMessages);
+
+        // keep only signed records
+        List<DomainIp> signedDomainIps = new ArrayList<>(domainIps.size());
+        List<byte[]> signedRecordSignatures = new ArrayList<>(domainIps.size());
+        for (int i = 0; i < recordSignatures.length; i++) {
+            if (recordSignatures[i] == null) continue;
+            DomainIp domainIp = domainIps.get(i);
+            indexBuilder.add(domainIp.domain);
+            signedDomainIps.add(domainIp);
+            signedRecordSignatures.add(recordSignatures[i]);
         }
-        domainList.add(endDomainBound);
 
         // create NSEC certificates
-        int iterateEnd = domainList.size() - 1;
-        for (int i = 0; i < iterateEnd; i++) {
-            try {
-                String hashString = Integer.toString((domainList.get(i) + "," + domainList.get(i + 1)).hashCode());
-                String signature = rsa.getSignatureFromHash(hashString, privateKey);
-                nonExistedDomainCerts.add(signature);
-            } catch (NoSuchAlgorithmException | NoSuchPaddingException | IllegalBlockSizeException | UnsupportedEncodingException | InvalidKeyException | BadPaddingException e) {
-                e.printStackTrace();
-            }
+        String[] gapMessages = new String[signedDomainIps.size() + 1];
+        String previousDomain = startDomainBound;
+        for (int i = 0; i < gapMessages.length; i++) {
+            String domain = (i < signedDomainIps.size()) ? signedDomainIps.get(i).domain : endDomainBound;
+            gapMessages[i] = previousDomain + "," + domain;
+            previousDomain = domain;
         }
+        byte[][] nonExistedDomainCerts = signer.sign(gapMessages);
+
+        Log.info("Zone signed: ", signer.throughputSummary());
+
+        String[] ips = new String[signedDomainIps.size()];
+        for (int i = 0; i < ips.length; i++) ips[i] = signedDomainIps.get(i).ip;
+        Zone signedZone = new Zone(indexBuilder.build(), ips, signedRecordSignatures.toArray(new byte[0][]),
+                nonExistedDomainCerts);
+
+        // save signed zone for the next startup (only if completely signed)
+        List<byte[]> gapSignatures = Arrays.asList(nonExistedDomainCerts);
+        if (isImageSaved && !gapSignatures.contains(null))
+            saveZoneImage(signedDomainIps, signedRecordSignatures, gapSignatures);
+        return signedZone;
+    }
+
+    /**
+     * This method applies zone updates and publishes the updated zone snapshot atomically.
+     * Requests in flight keep using the previous snapshot.
+     *
+     * @return the updates which are applied (invalid updates are skipped)
+     */
+    static List<ZoneUpdate> applyUpdates(List<ZoneUpdate> updates) {
+        List<ZoneUpdate> applied = new ArrayList<>(updates.size());
+        synchronized (zoneUpdateLock) {
+            if (updateSigner == null) updateSigner = new ZoneSigner(signatureAlgorithm, privateKey);
+            zone = zone.withUpdates(updates, updateSigner, applied);
+        }
+        return applied;
+    }
+
+    @Override
+    protected List<ZoneUpdate> applyZoneUpdates(List<ZoneUpdate> updates) {
+        return applyUpdates(updates);
     }
 
     @Override
-    protected void respond(Scanner in, PrintWriter out, String clientIp) {
+    public int domainCount() {
+        return zone.size();
+    }
+
+    @Override
+    protected void respond(ClientConnection connection, String clientIp) throws IOException {
         // get and print client's requested domain name
-        String domain = in.nextLine();
-        System.out.println("Request string: " + domain);
+        String domain = connection.readQuery();
+        if (domain == null) return;
+        Log.debug("Request string: ", domain);
 
         // respond to the client
-        respondCore(in, out, domain);
+        long startTime = System.nanoTime();
+        metrics().recordResponse(respondCore(connection, domain), startTime);
 
-        System.out.println();
+        Log.debug("");
     }
 
-    static void respondCore(Scanner in, PrintWriter out, String domain) {
-        // check if domain name exists in domainIp list
-        DomainIpSignature domainIpSignature = domainIpSignatureMap.get(domain);
+    static ResponseType respondCore(ClientConnection connection, String domain) throws IOException {
+        // use the same zone snapshot for the whole response
+        Zone zone = NSEC.zone;
+
+        // find existing domain or NSEC gap in one lookup
+        return respondCore(connection, zone, domain, zone.find(domain));
+    }
 
+    /**
+     * @param index result of {@code zone.find(domain)}
+     * @return type of the response sent
+     */
+    static ResponseType respondCore(ClientConnection connection, Zone zone, String domain, int index) throws IOException {
         // handle request for existing domain
-        if (domainIpSignature != null) {
-            String response = domainIpSignature.domainIp.toString() + " " + domainIpSignature.signature;
-            out.println(response);
-            System.out.println("Response sent to client: " + response);
-            return;
+        if (index >= 0) {
+            EncodedResponse response = zone.recordResponse(index);
+            connection.send(response);
+            Log.debug("Response sent to client: ", response.textBytes());
+            return ResponseType.ANSWER;
         }
 
         // handle invalid characters (may happens) and probable invisible characters (very very rare case)
-        if ((domain.indexOf(',') != -1 || domain.indexOf(' ') != -1)
-                || (domain.compareTo(startDomainBound) <= 0 || domain.compareTo(endDomainBound) >= 0)) {
-            out.println("Request is completely invalid: probable invisible character found.");
-            System.out.println("Response sent for probable invisible character.");
-            return;
+        if (!isValidDomain(domain)) {
+            connection.sendMessage("Request is completely invalid: probable invisible character found.");
+            Log.debug("Response sent for probable invisible character.");
+            return ResponseType.INVALID;
         }
 
         // handle NSEC
-        out.print(header + " ");
-        int signatureIndex = -Collections.binarySearch(domainList, domain) - 2;
-        String response = domainList.get(signatureIndex) +
-                "," + domainList.get(signatureIndex + 1) +
-                " " + nonExistedDomainCerts.get(signatureIndex);
-        out.println(response);
-        System.out.println("Response sent to client for NSEC: " + response);
+        EncodedResponse response = zone.gapResponse(-index - 1);
+        connection.send(response);
+        Log.debug("Response sent to client for NSEC: ", response.textBytes());
+        return ResponseType.DENIAL;
     }
 
-    private static class DomainIpSignature {
-        public final DomainIp domainIp;
-        public final String signature;
-
-        public DomainIpSignature(DomainIp domainIp, String signature) {
-            this.domainIp = domainIp;
-            this.signature = signature;
-        }
+    /**
+     * @return {@code false} if domain contains invalid characters (used by response format) or is outside the domain bounds
+     */
+    static boolean isValidDomain(String domain) {
+        return (domain.indexOf(',') == -1 && domain.indexOf(' ') == -1)
+                && (domain.compareTo(startDomainBound) > 0 && domain.compareTo(endDomainBound) < 0);
     }
 }
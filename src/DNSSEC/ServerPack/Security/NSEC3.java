@@ -0,0 +1,142 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.Log;
+import DNSSEC.Common.NSEC3Hash;
+import DNSSEC.ServerPack.ClientConnection;
+import DNSSEC.ServerPack.EncodedResponse;
+import DNSSEC.ServerPack.Server;
+import DNSSEC.ServerPack.ServerMetrics.ResponseType;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Implementation of NSEC3 (hashed authenticated denial of existence, RFC 5155)
+ * <p>
+ * Existing domains are answered from the same signed zone as {@link NSEC}. A non-existing domain is answered by the
+ * signed gap of the hash chain which covers the hash of the domain, so the response reveals only hashes of the
+ * neighbouring domains and the zone cannot be walked by following NSEC responses. Both startup and every denial cost
+ * {@code iterations + 1} SHA-1 digests per domain.
+ * <p>
+ * Zone updates are not supported: the chain is built from the zone of {@link NSEC} once and never rebuilt, while that
+ * zone is shared by all servers of the JVM and may be updated through another one. Existing domains are looked up in
+ * the current zone (case-sensitively) before the chain, and a domain whose hash is in the chain (the same domain in
+ * another letter case, or a domain deleted since the chain was built) is answered with a message, since no gap of the
+ * chain covers it.
+ */
+public class NSEC3 extends Server {
+    // ---------- Configurable Data (start) ---------- //
+
+    public static final int defaultIterations = 10;
+    private static final int defaultSaltLength = 8;     // in bytes
+
+    private static final int maxIterations = 0xFFFF;    // iterations are sent as unsigned short
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    // per thread buffers for hashing requested domains
+    private static final ThreadLocal<byte[]> ownerNameBuffer = ThreadLocal.withInitial(() -> new byte[NSEC3Hash.maxOwnerNameLength]);
+    private static final ThreadLocal<byte[]> hashBuffer = ThreadLocal.withInitial(() -> new byte[NSEC3Hash.hashLength]);
+
+    private final int iterations;
+    private final byte[] salt;
+    private final HashChain chain;
+
+
+    public NSEC3() {
+        this(defaultIterations, randomSalt(defaultSaltLength));
+    }
+
+    public NSEC3(int iterations, byte[] salt) {
+        if (iterations < 0 || iterations > maxIterations)
+            throw new IllegalArgumentException("Iterations must be between 0 and " + Integer.toString(maxIterations) + ".");
+        this.iterations = iterations;
+        this.salt = salt.clone();
+
+        // hash all domains of the signed zone (setupServer has already run)
+        Zone zone = NSEC.zone;
+        String[] domains = new String[zone.size()];
+        for (int i = 0; i < domains.length; i++) domains[i] = zone.gapEnd(i);
+        this.chain = HashChain.build(domains, this.salt, iterations, new ZoneSigner(signatureAlgorithm, privateKey));
+    }
+
+    @Override
+    public void setupServer() {
+        // signed answers of existing domains
+        NSEC.initialize();
+    }
+
+    @Override
+    public int domainCount() {
+        return chain.size();
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+
+    public byte[] salt() {
+        return salt.clone();
+    }
+
+    @Override
+    protected void respond(ClientConnection connection, String clientIp) throws IOException {
+        // get and print client's requested domain name
+        String domain = connection.readQuery();
+        if (domain == null) return;
+        Log.debug("Request string: ", domain);
+
+        // respond to the client
+        long startTime = System.nanoTime();
+        metrics().recordResponse(respondCore(connection, domain), startTime);
+
+        Log.debug("");
+    }
+
+    ResponseType respondCore(ClientConnection connection, String domain) throws IOException {
+        // handle request for existing domain
+        Zone zone = NSEC.zone;
+        int index = zone.find(domain);
+        if (index >= 0) {
+            EncodedResponse response = zone.recordResponse(index);
+            connection.send(response);
+            Log.debug("Response sent to client: ", response.textBytes());
+            return ResponseType.ANSWER;
+        }
+
+        // handle invalid characters, invalid labels and probable invisible characters
+        byte[] ownerName = ownerNameBuffer.get();
+        int ownerNameLength = NSEC.isValidDomain(domain) ? NSEC3Hash.ownerName(domain, ownerName) : -1;
+        if (ownerNameLength < 0 || chain.size() == 0) {
+            connection.sendMessage("Request is completely invalid: probable invisible character found.");
+            Log.debug("Response sent for probable invisible character.");
+            return ResponseType.INVALID;
+        }
+
+        // handle a hash in the chain: the domain exists in another letter case (owner names are hashed in lowercase) or
+        // was deleted by a zone update after the chain was built, so no gap can deny it
+        byte[] hash = hashBuffer.get();
+        NSEC3Hash.hash(ownerName, ownerNameLength, salt, iterations, hash);
+        int hashIndex = chain.find(hash);
+        if (hashIndex >= 0) {
+            connection.sendMessage("Requested domain cannot be denied: its hash is in the NSEC3 chain.");
+            Log.debug("Response sent for a domain hashed into the chain.");
+            return ResponseType.INVALID;
+        }
+
+        // handle NSEC3
+        EncodedResponse response = chain.gapResponse(-hashIndex - 1);
+        connection.send(response);
+        Log.debug("Response sent to client for NSEC3: ", response.textBytes());
+        return ResponseType.DENIAL;
+    }
+
+
+    private static byte[] randomSalt(int length) {
+        byte[] salt = new byte[length];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+}
@@ -0,0 +1,173 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.NetworkTask;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Response rate limiting by token buckets for each client and for each network prefix (/24 for IPv4, /56 for IPv6)
+ * <p>
+ * Unlike low profiling, which only catches zone walking (queries in lexicographical order), it limits every source:
+ * a client flooding random names gets a signed response only while its bucket and the bucket of its prefix have tokens.
+ * Buckets are kept in {@link ClientActivityTable}s (bounded, keyed by the packed address) and refilled lazily when they
+ * are used, so there is no timer. A bucket which would be full again is forgotten by idle eviction.
+ * <p>
+ * Invalid client IP addresses share one bucket. The server passes the address of the socket (or datagram) where one
+ * exists, so a client cannot escape its bucket by reporting another IP address in its handshake.
+ */
+public class ResponseRateLimiter {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int maxClients = 100000;      // least recently used clients are evicted beyond it
+    private static final int maxPrefixes = 10000;
+
+    private static final int ip4PrefixLength = 24;
+    private static final int ip6PrefixLength = 56;     // must be at most 64
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private static final long ip4MappedHighBits = 0xFFFFL;  // bits 32 to 63 of an IPv4-mapped address
+
+    private final ClientActivityTable<TokenBucket> clientBuckets;
+    private final ClientActivityTable<TokenBucket> prefixBuckets;
+
+    private final LongAdder clientLimitedResponses = new LongAdder();
+    private final LongAdder prefixLimitedResponses = new LongAdder();
+
+    // per thread buffer for parsed client IP address (high and low 64 bits)
+    private static final ThreadLocal<long[]> clientAddress = ThreadLocal.withInitial(() -> new long[2]);
+
+
+    /**
+     * @param clientRate  responses per second for each client
+     * @param clientBurst responses a client may get at once after being idle
+     * @param prefixRate  responses per second for all clients of a prefix together
+     * @param prefixBurst responses all clients of a prefix may get at once after being idle
+     */
+    public ResponseRateLimiter(double clientRate, double clientBurst, double prefixRate, double prefixBurst) {
+        if (clientRate <= 0 || prefixRate <= 0 || clientBurst < 1 || prefixBurst < 1)
+            throw new IllegalArgumentException("Rates must be positive and bursts must be at least 1.");
+        clientBuckets = new ClientActivityTable<>(maxClients, () -> new TokenBucket(clientRate, clientBurst));
+        prefixBuckets = new ClientActivityTable<>(maxPrefixes, () -> new TokenBucket(prefixRate, prefixBurst));
+    }
+
+    /**
+     * This method takes a token of the client and of its prefix, or none of them if either bucket is empty.
+     *
+     * @return {@code true} if the client may get a full response, {@code false} if it is over its rate
+     */
+    public boolean isAllowed(String clientIp) {
+        long[] address = clientAddress.get();
+        if (!NetworkTask.parseIPAddress(clientIp, address)) {
+            address[0] = 0;
+            address[1] = 0;
+        }
+        return isAllowed(address[0], address[1]);
+    }
+
+    /**
+     * @param addressHigh high 64 bits of client IP address (see {@code NetworkTask.parseIPAddress})
+     * @param addressLow  low 64 bits of client IP address
+     * @see #isAllowed(String)
+     */
+    public boolean isAllowed(long addressHigh, long addressLow) {
+        long[] address = clientAddress.get();
+        address[0] = addressHigh;
+        address[1] = addressLow;
+        long currentTime = System.currentTimeMillis();
+
+        TokenBucket clientBucket = clientBuckets.get(address[0], address[1], currentTime);
+        if (!clientBucket.take(currentTime)) {
+            clientLimitedResponses.increment();
+            return false;
+        }
+
+        // mask the address to its prefix
+        boolean isIP4 = address[0] == 0 && (address[1] >>> 32) == ip4MappedHighBits;
+        if (isIP4) {
+            address[1] &= -1L << (32 - ip4PrefixLength);
+        } else {
+            address[0] &= -1L << (64 - ip6PrefixLength);
+            address[1] = 0;
+        }
+        if (!prefixBuckets.get(address[0], address[1], currentTime).take(currentTime)) {
+            // the client is not charged for a response it does not get
+            clientBucket.refund();
+            prefixLimitedResponses.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of responses limited by the rate of a client
+     */
+    public long clientLimitedResponses() {
+        return clientLimitedResponses.sum();
+    }
+
+    /**
+     * @return the number of responses limited by the rate of a prefix (while the client itself was within its rate)
+     */
+    public long prefixLimitedResponses() {
+        return prefixLimitedResponses.sum();
+    }
+
+    public String summary() {
+        return "client limited=" + Long.toString(clientLimitedResponses()) +
+                ", prefix limited=" + Long.toString(prefixLimitedResponses()) +
+                ", " + clientBuckets.summary() + ", prefixes=" + Integer.toString(prefixBuckets.size());
+    }
+
+
+    /**
+     * Token bucket refilled lazily by the time elapsed since its previous use
+     */
+    private static class TokenBucket implements ClientActivityTable.Expirable {
+        private final double tokensPerMilli;
+        private final double burst;
+        private final long refillMillis;    // time to refill an empty bucket
+
+        private double tokens;
+        private long refillTime = System.currentTimeMillis();
+
+        // updated on every use, read by the activity table for idle eviction
+        private volatile long expiryTime;
+
+        TokenBucket(double rate, double burst) {
+            this.tokensPerMilli = rate / 1000.0;
+            this.burst = burst;
+            this.refillMillis = (long) Math.ceil(burst / tokensPerMilli);
+            tokens = burst;
+            expiryTime = refillTime + refillMillis;
+        }
+
+        @Override
+        public long expiryTime() {
+            return expiryTime;
+        }
+
+        // the same client (or prefix) may send requests through more than one connection at a time
+        synchronized boolean take(long currentTime) {
+            if (currentTime > refillTime) {
+                tokens = Math.min(burst, tokens + (currentTime - refillTime) * tokensPerMilli);
+                refillTime = currentTime;
+            }
+            // after the refill time, the bucket is full again and equal to a new one
+            expiryTime = currentTime + refillMillis;
+
+            if (tokens < 1) return false;
+            tokens--;
+            return true;
+        }
+
+        /**
+         * This method gives back a token taken by {@link #take(long)}.
+         */
+        synchronized void refund() {
+            tokens = Math.min(burst, tokens + 1);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.ServerPack.EncodedResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Bounded least recently used cache of NSEC responses signed at query time
+ * <p>
+ * The cache is split into lock stripes by the hash of the range, each one an access-ordered {@code LinkedHashMap}
+ * holding at most its share of {@code maxEntries}. Every response remembers the zone snapshot it was created for, so
+ * after a zone update the old responses are never returned (a range may not be empty in the new zone).
+ */
+class SignedRangeCache {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int stripeCount = 16;  // must be a power of two
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private final Stripe[] stripes = new Stripe[stripeCount];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+
+    SignedRangeCache(int maxEntries) {
+        int maxStripeEntries = Math.max(1, (maxEntries + stripeCount - 1) / stripeCount);
+        for (int i = 0; i < stripeCount; i++) stripes[i] = new Stripe(maxStripeEntries);
+    }
+
+    /**
+     * @param range signed message of the range ({@code start,end})
+     * @return cached response of the range for the zone snapshot, or {@code null}
+     */
+    EncodedResponse get(String range, Zone zone) {
+        Stripe stripe = stripe(range);
+        SignedRange signedRange;
+        synchronized (stripe) {
+            signedRange = stripe.get(range);
+        }
+
+        if (signedRange == null || signedRange.zone != zone) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return signedRange.response;
+    }
+
+    void put(String range, Zone zone, EncodedResponse response) {
+        Stripe stripe = stripe(range);
+        synchronized (stripe) {
+            stripe.put(range, new SignedRange(zone, response));
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    String summary() {
+        return "cached ranges=" + Integer.toString(size()) + ", hits=" + Long.toString(hits()) +
+                ", misses=" + Long.toString(misses());
+    }
+
+
+    private Stripe stripe(String range) {
+        int hash = range.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripeCount - 1)];
+    }
+
+
+    private static class SignedRange {
+        final Zone zone;
+        final EncodedResponse response;
+
+        SignedRange(Zone zone, EncodedResponse response) {
+            this.zone = zone;
+            this.response = response;
+        }
+    }
+
+
+    private static class Stripe extends LinkedHashMap<String, SignedRange> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        Stripe(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SignedRange> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
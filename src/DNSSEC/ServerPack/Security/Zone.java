@@ -0,0 +1,229 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.Log;
+import DNSSEC.Common.NetworkTask;
+import DNSSEC.ServerPack.EncodedResponse;
+import DNSSEC.ServerPack.ZoneUpdate;
+
+import java.util.*;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Immutable snapshot of a signed zone
+ * <p>
+ * A snapshot is never changed after it is published, so request threads read it without any lock.
+ * Zone updates create a new snapshot in which only the changed records and their neighbouring NSEC gaps are signed.
+ * <p>
+ * Domains are stored once in a {@link DomainIndex}. Record {@code i} is the {@code i}-th domain of the index and
+ * NSEC gap {@code i} lies between domains {@code i - 1} and {@code i} (the first and the last gap use the domain bounds).
+ * <p>
+ * Every signed response is encoded once when it is signed, so answering a request is a lookup and a write.
+ */
+class Zone {
+    private final DomainIndex domainIndex;
+
+    private final String[] ips;
+    private final EncodedResponse[] recordResponses;
+
+    // store non-existed domain responses, one for each gap (size + 1 gaps)
+    private final EncodedResponse[] nonExistedDomainResponses;
+
+
+    private Zone(DomainIndex domainIndex, String[] ips, EncodedResponse[] recordResponses,
+                 EncodedResponse[] nonExistedDomainResponses) {
+        this.domainIndex = domainIndex;
+        this.ips = ips;
+        this.recordResponses = recordResponses;
+        this.nonExistedDomainResponses = nonExistedDomainResponses;
+    }
+
+    /**
+     * This method creates a zone from signatures. Missing (null) signatures are left unsigned.
+     */
+    Zone(DomainIndex domainIndex, String[] ips, byte[][] recordSignatures, byte[][] nonExistedDomainCerts) {
+        this(domainIndex, ips, new EncodedResponse[recordSignatures.length],
+                new EncodedResponse[nonExistedDomainCerts.length]);
+
+        DomainIndex.Cursor cursor = domainIndex.cursor(0);
+        String previousDomain = NSEC.startDomainBound;
+        for (int i = 0; i < nonExistedDomainCerts.length; i++) {
+            String domain = cursor.hasCurrent() ? cursor.current() : NSEC.endDomainBound;
+            if (cursor.hasCurrent() && recordSignatures[i] != null)
+                recordResponses[i] = EncodedResponse.answer(domain, ips[i], recordSignatures[i]);
+            if (nonExistedDomainCerts[i] != null)
+                nonExistedDomainResponses[i] = EncodedResponse.nsec(previousDomain, domain, nonExistedDomainCerts[i]);
+            previousDomain = domain;
+            cursor.next();
+        }
+    }
+
+    /**
+     * This method answers both exact lookup and NSEC lookup in one walk.
+     *
+     * @return record index if the domain exists, otherwise {@code (-(NSEC gap index) - 1)}
+     */
+    int find(String domain) {
+        return domainIndex.find(domain);
+    }
+
+    String ip(int recordIndex) {
+        return ips[recordIndex];
+    }
+
+    EncodedResponse recordResponse(int recordIndex) {
+        return recordResponses[recordIndex];
+    }
+
+    String gapStart(int gapIndex) {
+        return (gapIndex == 0) ? NSEC.startDomainBound : domainIndex.get(gapIndex - 1);
+    }
+
+    String gapEnd(int gapIndex) {
+        return (gapIndex == domainIndex.size()) ? NSEC.endDomainBound : domainIndex.get(gapIndex);
+    }
+
+    EncodedResponse gapResponse(int gapIndex) {
+        return nonExistedDomainResponses[gapIndex];
+    }
+
+    /**
+     * @return the number of domain-IP records (including duplicate domains of domain-IP file)
+     */
+    int size() {
+        return domainIndex.size();
+    }
+
+    /**
+     * This method applies updates on a copy of this zone. Invalid updates (eg. adding an existing domain, or adding or
+     * changing a domain with an invalid IP address) are skipped. Only the changed records and the NSEC gaps around them
+     * are signed. If any of them cannot be signed, no update is applied.
+     *
+     * @param applied receives the updates which are applied
+     * @return the updated zone, or this zone if no update is applied
+     */
+    Zone withUpdates(List<ZoneUpdate> updates, ZoneSigner signer, List<ZoneUpdate> applied) {
+        // collect the final state of every updated domain (null IP address for deleted domain)
+        TreeMap<String, String> changedDomains = new TreeMap<>();
+        long[] address = new long[2];
+        for (ZoneUpdate update : updates) {
+            if (!NSEC.isValidDomain(update.domain) || !DomainIndex.isIndexable(update.domain)) continue;
+            // IP address is a part of the answer line, so it must not be empty or contain separators
+            if (update.type != ZoneUpdate.Type.DELETE && !NetworkTask.parseIPAddress(update.ip, address)) continue;
+            boolean isExisting = changedDomains.containsKey(update.domain) ?
+                    (changedDomains.get(update.domain) != null) : (find(update.domain) >= 0);
+
+            if (update.type == ZoneUpdate.Type.ADD && isExisting) continue;
+            if (update.type != ZoneUpdate.Type.ADD && !isExisting) continue;
+            changedDomains.put(update.domain, (update.type == ZoneUpdate.Type.DELETE) ? null : update.ip);
+            applied.add(update);
+        }
+        if (applied.isEmpty()) return this;
+
+        // merge unchanged and changed domains in order, keeping responses which are still valid
+        DomainIndex.Builder builder = new DomainIndex.Builder(domainIndex.suffixes());
+        List<String> newIps = new ArrayList<>(size() + changedDomains.size());
+        List<EncodedResponse> newRecordResponses = new ArrayList<>(size() + changedDomains.size());
+        List<EncodedResponse> newGapResponses = new ArrayList<>(size() + changedDomains.size() + 1);
+
+        DomainIndex.Cursor cursor = domainIndex.cursor(0);
+        Iterator<Map.Entry<String, String>> changes = changedDomains.entrySet().iterator();
+        Map.Entry<String, String> change = changes.hasNext() ? changes.next() : null;
+        int previousOldIndex = -1;  // old index of the previous domain, -1 for start bound and -2 for an added domain
+        while (cursor.hasCurrent() || change != null) {
+            int comparison = !cursor.hasCurrent() ? 1 : (change == null) ? -1 : cursor.compareTo(change.getKey());
+
+            if (comparison < 0) {
+                // unchanged domain, keep record response and also gap response if previous domain is unchanged
+                int oldIndex = cursor.index();
+                cursor.copyTo(builder);
+                newIps.add(ips[oldIndex]);
+                newRecordResponses.add(recordResponses[oldIndex]);
+                newGapResponses.add((previousOldIndex == oldIndex - 1) ? nonExistedDomainResponses[oldIndex] : null);
+                previousOldIndex = oldIndex;
+                cursor.next();
+                continue;
+            }
+
+            // skip all old entries of the changed domain
+            int firstOldIndex = -2;
+            int lastOldIndex = -2;
+            while (cursor.hasCurrent() && cursor.compareTo(change.getKey()) == 0) {
+                if (firstOldIndex == -2) firstOldIndex = cursor.index();
+                lastOldIndex = cursor.index();
+                cursor.next();
+            }
+
+            if (change.getValue() != null) {
+                // added or changed domain, gaps around a changed domain hold no IP address so they are still valid
+                builder.add(change.getKey());
+                newIps.add(change.getValue());
+                newRecordResponses.add(null);
+                boolean isPreviousGapValid = firstOldIndex >= 0 && previousOldIndex == firstOldIndex - 1;
+                newGapResponses.add(isPreviousGapValid ? nonExistedDomainResponses[firstOldIndex] : null);
+                previousOldIndex = lastOldIndex;
+            }
+            change = changes.hasNext() ? changes.next() : null;
+        }
+        newGapResponses.add((previousOldIndex == size() - 1) ? nonExistedDomainResponses[size()] : null);
+
+        DomainIndex newIndex = builder.build();
+        Zone zone = new Zone(newIndex, newIps.toArray(new String[0]),
+                newRecordResponses.toArray(new EncodedResponse[0]), newGapResponses.toArray(new EncodedResponse[0]));
+        if (!zone.signMissing(signer)) {
+            // a zone with an unsigned record or gap cannot be served, so the updates are reported as not applied
+            applied.clear();
+            return this;
+        }
+        return zone;
+    }
+
+    /**
+     * This method signs and encodes all records and gaps which do not have responses yet.
+     *
+     * @return {@code false} if a record or a gap cannot be signed
+     */
+    private boolean signMissing(ZoneSigner signer) {
+        // sign changed records
+        List<Integer> recordIndexes = new ArrayList<>();
+        for (int i = 0; i < recordResponses.length; i++) if (recordResponses[i] == null) recordIndexes.add(i);
+        String[] recordDomains = new String[recordIndexes.size()];
+        String[] recordMessages = new String[recordIndexes.size()];
+        for (int i = 0; i < recordMessages.length; i++) {
+            int recordIndex = recordIndexes.get(i);
+            recordDomains[i] = domainIndex.get(recordIndex);
+            recordMessages[i] = recordDomains[i] + "," + ips[recordIndex];
+        }
+        byte[][] signatures = signer.sign(recordMessages);
+        for (int i = 0; i < signatures.length; i++) {
+            if (signatures[i] == null) {
+                Log.error("Record cannot be signed: " + recordMessages[i]);
+                return false;
+            }
+            int recordIndex = recordIndexes.get(i);
+            recordResponses[recordIndex] = EncodedResponse.answer(recordDomains[i], ips[recordIndex], signatures[i]);
+        }
+
+        // sign changed gaps
+        List<Integer> gapIndexes = new ArrayList<>();
+        for (int i = 0; i < nonExistedDomainResponses.length; i++)
+            if (nonExistedDomainResponses[i] == null) gapIndexes.add(i);
+        String[] gapStarts = new String[gapIndexes.size()];
+        String[] gapEnds = new String[gapIndexes.size()];
+        String[] gapMessages = new String[gapIndexes.size()];
+        for (int i = 0; i < gapMessages.length; i++) {
+            int gapIndex = gapIndexes.get(i);
+            gapStarts[i] = gapStart(gapIndex);
+            gapEnds[i] = gapEnd(gapIndex);
+            gapMessages[i] = gapStarts[i] + "," + gapEnds[i];
+        }
+        signatures = signer.sign(gapMessages);
+        for (int i = 0; i < signatures.length; i++) {
+            if (signatures[i] == null) {
+                Log.error("NSEC cannot be signed: " + gapMessages[i]);
+                return false;
+            }
+            nonExistedDomainResponses[gapIndexes.get(i)] = EncodedResponse.nsec(gapStarts[i], gapEnds[i], signatures[i]);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package DNSSEC.ServerPack.Security;
+
+import DNSSEC.Common.SignatureAlgorithm;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Signs zone records in parallel on a fork-join pool
+ * <p>
+ * Signers are not thread-safe, so each worker thread signs with its own {@code SignatureAlgorithm.Signer}.
+ * Signatures are returned in the same order as the messages, so the result does not depend on scheduling.
+ * <p>
+ * All zone signers share one fork-join pool which is started by the first large batch, and a small batch is signed in
+ * the calling thread, so frequent zone updates never start threads. A signer kept for several batches also keeps the
+ * {@code Signer} of each thread.
+ */
+class ZoneSigner {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int signingThreads = Runtime.getRuntime().availableProcessors();
+
+    private static final int messagesPerTask = 256;    // messages signed by a worker without splitting further
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    private final SignatureAlgorithm algorithm;
+    private final ThreadLocal<SignatureAlgorithm.Signer> workerSigner;
+
+    private long totalSignatures = 0;
+    private long totalSigningNanos = 0;
+
+
+    ZoneSigner(SignatureAlgorithm algorithm, PrivateKey privateKey) {
+        this.algorithm = algorithm;
+        this.workerSigner = ThreadLocal.withInitial(() -> {
+            try {
+                return algorithm.newSigner(privateKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * The signature of each message is created by the signature algorithm of the signer.
+     *
+     * @return signatures in the order of {@code messages}, {@code null} for a message which could not be signed
+     */
+    byte[][] sign(String[] messages) {
+        long startTime = System.nanoTime();
+        byte[][] signatures = new byte[messages.length][];
+
+        SignTask task = new SignTask(messages, signatures, 0, messages.length);
+        if (messages.length <= messagesPerTask) {
+            // small batch (eg. zone update) is signed in the calling thread without starting a pool
+            task.compute();
+        } else {
+            SigningPool.pool.invoke(task);
+        }
+
+        totalSignatures += messages.length;
+        totalSigningNanos += System.nanoTime() - startTime;
+        return signatures;
+    }
+
+    /**
+     * @return one-line summary of all signing done by this signer
+     */
+    String throughputSummary() {
+        double elapsedMillis = totalSigningNanos / 1e6;
+        return Long.toString(totalSignatures) + " signatures in " + String.format("%.1f", elapsedMillis) + " msec (" +
+                String.format("%.1f", totalSignatures / (elapsedMillis / 1000.0)) + " signatures per second, " +
+                Integer.toString(signingThreads) + " threads, " + algorithm.name() + ")";
+    }
+
+
+    /**
+     * Holder of the pool shared by all signers, so that the pool is created only when it is used
+     * (its worker threads are daemon threads and stop when idle)
+     */
+    private static class SigningPool {
+        static final ForkJoinPool pool = new ForkJoinPool(signingThreads);
+    }
+
+
+    private class SignTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] messages;
+        private final byte[][] signatures;
+        private final int start;
+        private final int end;
+
+        SignTask(String[] messages, byte[][] signatures, int start, int end) {
+            this.messages = messages;
+            this.signatures = signatures;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if ((end - start) > messagesPerTask) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new SignTask(messages, signatures, start, middle),
+                        new SignTask(messages, signatures, middle, end));
+                return;
+            }
+
+            SignatureAlgorithm.Signer signer = workerSigner.get();
+            for (int i = start; i < end; i++) {
+                try {
+                    signatures[i] = signer.sign(messages[i]);
+                } catch (GeneralSecurityException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
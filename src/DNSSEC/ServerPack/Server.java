@@ -1,20 +1,40 @@
 package DNSSEC.ServerPack;
 
-import DNSSEC.Common.RSA_Cryptography;
-
-import javax.crypto.NoSuchPaddingException;
+import DNSSEC.Common.BinaryProtocol;
+import DNSSEC.Common.LatencyHistogram;
+import DNSSEC.Common.Log;
+import DNSSEC.Common.MemoryTransport;
+import DNSSEC.Common.NetworkTask;
+import DNSSEC.Common.SignatureAlgorithm;
+import DNSSEC.Common.SocketTransport;
+import DNSSEC.Common.Transport;
+import DNSSEC.ServerPack.Security.ResponseRateLimiter;
+import DNSSEC.ServerPack.ServerMetrics.ResponseType;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.security.NoSuchAlgorithmException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.spec.InvalidKeySpecException;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by arnob on 19/05/2017.
@@ -24,136 +44,180 @@ public abstract class Server {
     // ---------- Configurable Data (start) ---------- //
 
     private static final String domainIpFilename = "domain_ip.csv";
+    private static final String zoneImageFilename = "domain_ip.zone";   // pre-signed zone image created from domainIpFilename
     private static final int approximateDomainIpList = 250;
 
-    public static final String rsa_Folder = "RSA_keyPair/";
-    public static final String publicKeyFilename = "publicKey";
+    public static final String publicKeyFilename = "publicKey";     // inside key folder of the signature algorithm
     private static final String privateKeyFilename = "privateKey";
 
     private static final int totalClientResponseThreads = 10;    // the number of limited client threads for the server
 
     public static final int port = 45678;
 
+    private static final String metricsDomain = "DNSSEC";   // JMX domain of server metrics MBeans
+
+    private static final String rateLimitedMessage = "Response rate limit exceeded. Please try later.";
+
     // ---------- Configurable Data (end) ---------- //
 
 
-    protected static RSA_Cryptography rsa;
+    protected static SignatureAlgorithm signatureAlgorithm;
     protected static PublicKey publicKey;
     protected static PrivateKey privateKey = null;
 
     protected static final List<DomainIp> domainIpList = new ArrayList<>(approximateDomainIpList);
 
+    // pre-signed zone image (null if it does not exist or is stale) and checksum of its source files
+    protected static ZoneImage zoneImage = null;
+    private static long zoneSourceChecksum;
+
     private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private int localPort = port;
+    private DatagramChannel datagramChannel;
 
     // for maintaining limited client threads and also for performance reason (same threads are continuously used)
-    private final ExecutorService clientResponseThreads = Executors.newFixedThreadPool(totalClientResponseThreads);
+    // or, in virtual thread mode, for running each client connection in its own virtual thread
+    private ExecutorService clientResponseThreads;
+    private ExecutionMode executionMode;
+
+    // used only in fixed thread pool mode
+    private final BlockingQueue<AcceptedClient> clientSockets = new LinkedBlockingQueue<>(totalClientResponseThreads);
+
+    private final LatencyHistogram firstByteLatency = new LatencyHistogram();
+
+    private final ServerMetrics metrics = new ServerMetrics(this);
+    private ObjectName metricsName = null;    // registered while the server is running
+    private static final AtomicInteger serverCount = new AtomicInteger();   // distinguishes MBeans of several servers
 
-    private final BlockingQueue<Socket> clientSockets = new LinkedBlockingQueue<>(totalClientResponseThreads);
+    private final AtomicLong udpQueriesServed = new AtomicLong();
+    private long udpStartTime;
 
     private volatile boolean isRunning = false; // shared in more than one thread to stop server
 
+    private volatile boolean isRemoteUpdateAllowed = false; // whether clients may send zone updates
+
+    private volatile ResponseRateLimiter responseRateLimiter = null;    // null if responses are not rate limited
+
 
     public Server() {
         readServerData();
         setupServer();
     }
 
-    private void readServerData() {
+    // servers may be created concurrently (eg. parallel automated test), so static data is initialized only once
+    private static synchronized void readServerData() {
         // check if already initialized
         if (privateKey != null) return;
 
         // clear invalid domainIp entries in case of failed server
         domainIpList.clear();
 
-        // read domainIp data
-        Scanner in = null;
+        // read keys of the signature algorithm (created for the first time if it is not RSA)
+        signatureAlgorithm = SignatureAlgorithm.configured();
+        String keyFolder = signatureAlgorithm.keyFolder;
         try {
-            in = new Scanner(new File(domainIpFilename));
-        } catch (FileNotFoundException e) {
+            if (!new File(keyFolder + privateKeyFilename).isFile() && !keyFolder.equals(SignatureAlgorithm.RSA_HASH.keyFolder)) {
+                signatureAlgorithm.writeNewKeyPair(keyFolder + publicKeyFilename, keyFolder + privateKeyFilename);
+                Log.info("Key pair created in: ", keyFolder);
+            }
+            publicKey = signatureAlgorithm.readPublicKey(keyFolder + publicKeyFilename);
+            privateKey = signatureAlgorithm.readPrivateKey(keyFolder + privateKeyFilename);
+        } catch (GeneralSecurityException | IOException e) {
             e.printStackTrace();
             System.exit(-100);  // fatal error, so terminate server
         }
-        while (in.hasNextLine()) {
-            String[] input = in.nextLine().split(",");
-            if (input.length != 2) break;
-            domainIpList.add(new DomainIp(input[0], input[1]));
+        Log.info("Signature algorithm: ", signatureAlgorithm.name());
+
+        // read domainIp data from pre-signed zone image if it is not stale
+        try {
+            zoneSourceChecksum = ZoneImage.sourceChecksum(signatureAlgorithm.name(), new File(domainIpFilename),
+                    new File(keyFolder + publicKeyFilename));
+            zoneImage = ZoneImage.open(new File(zoneImageFilename), zoneSourceChecksum);
+        } catch (IOException e) {
+            e.printStackTrace();
+            zoneImage = null;
+        }
+        if (zoneImage != null) {
+            domainIpList.addAll(zoneImage.readDomainIps());
+            Log.info("Zone image loaded: " + Integer.toString(zoneImage.recordCount()) + " records.");
+        } else {
+            readDomainIpFile();
+        }
+    }
+
+    private static void readDomainIpFile() {
+        // records are parsed and sorted in parallel, malformed lines are skipped
+        ZoneLoader.Result result = null;
+        try {
+            result = ZoneLoader.load(new File(domainIpFilename));
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(-100);  // fatal error, so terminate server
         }
-        in.close();
-        Collections.sort(domainIpList, DomainIp.SORT_BY_DOMAIN);
+        domainIpList.addAll(result.domainIps);
+        Log.info("Domain-IP records loaded: ", result.summary());
+        if (result.malformedLines > 0) Log.warning("Malformed lines skipped in " + domainIpFilename + ".");
+    }
 
-        // read RSA keys
+    /**
+     * This method writes pre-signed zone image so that the zone is not signed again in the next server startup.
+     */
+    protected static void saveZoneImage(List<DomainIp> domainIps, List<byte[]> recordSignatures, List<byte[]> gapSignatures) {
         try {
-            rsa = new RSA_Cryptography();
-            publicKey = rsa.getPublic(rsa_Folder + publicKeyFilename);
-            privateKey = rsa.getPrivate(rsa_Folder + privateKeyFilename);
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeySpecException | IOException e) {
+            ZoneImage.write(new File(zoneImageFilename), zoneSourceChecksum, domainIps, recordSignatures, gapSignatures);
+            Log.info("Zone image written: ", zoneImageFilename);
+        } catch (IOException e) {
             e.printStackTrace();
+            Log.error("Zone image cannot be written.");
         }
     }
 
     protected abstract void setupServer();
 
-    public final void runServer() {
+    /**
+     * This method is called after the server is stopped.
+     */
+    protected void teardownServer() {
+    }
+
+    public final CompletableFuture<Integer> runServer() {
+        return runServer(ExecutionMode.FIXED_THREAD_POOL);
+    }
+
+    public final CompletableFuture<Integer> runServer(ExecutionMode executionMode) {
+        return runServer(executionMode, port);
+    }
+
+    /**
+     * This method is not a blocking call: clients are accepted in a separate thread.
+     *
+     * @param serverPort port number to listen on, or 0 for an ephemeral port chosen by the system
+     *                   (so that several servers can run at the same time)
+     * @return future completed with the port number when the server is ready to accept clients
+     */
+    public final CompletableFuture<Integer> runServer(ExecutionMode executionMode, int serverPort) {
         // creating server socket
         try {
-            serverSocket = new ServerSocket(port);
+            serverSocket = new ServerSocket(serverPort);
         } catch (IOException e) {
             e.printStackTrace();
-            System.err.println("Please ensure that no other server is using the port " + Integer.toString(port));
+            Log.error("Please ensure that no other server is using the port " + Integer.toString(serverPort));
             System.exit(-300);  // fatal error, so terminate server
         }
+        localPort = serverSocket.getLocalPort();
 
-        // ready to run server
-        isRunning = true;
+        startClientResponseThreads(executionMode);
 
         // running server in a separate thread so that 'runServer()' is not a blocking call
-        new Thread(() -> {
+        acceptThread = new Thread(() -> {
             try {
                 while (isRunning) {
-                    clientSockets.put(serverSocket.accept());
-                    clientResponseThreads.execute(() -> {
-                        Socket client = null;
-                        try {
-                            // assign client connection
-                            client = clientSockets.take();
-                            Scanner in = new Scanner(new BufferedReader(new InputStreamReader(client.getInputStream())));
-                            PrintWriter out = new PrintWriter(client.getOutputStream(), true);
-
-                            // get and print client IP address
-                            String clientIp = in.nextLine();
-                            printLine();
-                            System.out.println("Request from client: " + clientIp);
-                            printLine();
-
-                            boolean isConnected;
-                            do {
-                                // respond to client
-                                respond(in, out, clientIp);
-
-                                // check if connected
-                                try {
-                                    isConnected = in.hasNext();
-                                } catch (IllegalStateException e) {
-                                    isConnected = false;
-                                }
-                            } while (isConnected);
-
-                            // print ending lines
-                            printLine();
-                            System.out.println();
-                        } catch (IOException | InterruptedException e) {
-                            e.printStackTrace();
-                        } finally {
-                            if (client != null) try {
-                                client.close();
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        }
-                    });
+                    Socket acceptedClient = serverSocket.accept();
+                    dispatchClient(new SocketTransport(acceptedClient), System.nanoTime());
                 }
             } catch (IOException | InterruptedException e) {
-                e.printStackTrace();
+                if (isRunning) e.printStackTrace();
             } finally {
                 try {
                     serverSocket.close();
@@ -161,45 +225,474 @@ public abstract class Server {
                     e.printStackTrace();
                 }
             }
-        }).start();
+        });
+        acceptThread.start();
+
+        Log.info("Server started (" + executionMode + ", port " + Integer.toString(localPort) + ").");
+        return CompletableFuture.completedFuture(localPort);
+    }
+
+    /**
+     * This method runs the server without any socket: clients are connected only by {@link #connectInMemory()} from
+     * the same JVM (eg. simulations of automated test). Responses are the same as over TCP.
+     */
+    public final void runInMemoryServer(ExecutionMode executionMode) {
+        startClientResponseThreads(executionMode);
+        Log.info("Server started (" + executionMode + ", in memory).");
+    }
+
+    /**
+     * This method connects a client in the same JVM without any socket. The connection is served by the client
+     * response threads as an accepted TCP connection, so the server must be running (over TCP or in memory).
+     *
+     * @return client end of the connection
+     */
+    public final Transport connectInMemory() {
+        if (!isRunning) throw new IllegalStateException("Server is not running.");
+        MemoryTransport clientEnd = new MemoryTransport();
+        try {
+            dispatchClient(clientEnd.peer(), System.nanoTime());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            clientEnd.close();
+        }
+        return clientEnd;
+    }
+
+    private void startClientResponseThreads(ExecutionMode executionMode) {
+        // create client response threads for the selected execution mode
+        this.executionMode = executionMode;
+        clientResponseThreads = createClientResponseThreads(executionMode);
+        firstByteLatency.reset();
+
+        // ready to run server
+        isRunning = true;
+        registerMetrics();
+    }
+
+    private void dispatchClient(Transport client, long acceptTime) throws InterruptedException {
+        if (executionMode == ExecutionMode.VIRTUAL_THREAD_PER_CONNECTION) {
+            // each connection gets its own thread, so no hand-off queue is needed
+            clientResponseThreads.execute(() -> serveClient(client, acceptTime));
+        } else {
+            clientSockets.put(new AcceptedClient(client, acceptTime));
+            clientResponseThreads.execute(() -> {
+                try {
+                    AcceptedClient acceptedClient = clientSockets.take();
+                    serveClient(acceptedClient.transport, acceptedClient.acceptTime);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return port number of the running server (ephemeral port if the server is run on port 0)
+     */
+    public final int localPort() {
+        return localPort;
+    }
+
+    /**
+     * This method runs a UDP listener on the same port number which handles one query per datagram.
+     * The binary protocol is used without any handshake and client IP address is taken from datagram source address.
+     * It is not a blocking call and may run together with {@code runServer()}: if it is called after
+     * {@code runServer(mode, 0)}, it listens on the ephemeral port of {@link #localPort()}, otherwise on {@link #port}.
+     *
+     * @param totalUdpThreads the number of threads receiving and responding to datagrams
+     */
+    public final void runUdpServer(int totalUdpThreads) {
+        // creating datagram channel
+        try {
+            datagramChannel = DatagramChannel.open();
+            datagramChannel.bind(new InetSocketAddress(localPort));
+        } catch (IOException e) {
+            e.printStackTrace();
+            Log.error("Please ensure that no other server is using the UDP port " + Integer.toString(localPort));
+            System.exit(-300);  // fatal error, so terminate server
+        }
+
+        udpQueriesServed.set(0);
+        udpStartTime = System.nanoTime();
+        registerMetrics();
+
+        for (int i = 0; i < totalUdpThreads; i++) {
+            new Thread(() -> {
+                // buffers and connection are reused for all datagrams of this thread
+                ByteBuffer datagram = ByteBuffer.allocate(BinaryProtocol.maxFrameLength);
+                DatagramClientConnection connection = new DatagramClientConnection(datagramChannel);
+                long[] rateLimitedAddress = new long[2];
+                while (datagramChannel.isOpen()) {
+                    try {
+                        datagram.clear();
+                        SocketAddress source = datagramChannel.receive(datagram);
+                        datagram.flip();
+
+                        // ignore malformed datagram as there is no connection to report to
+                        if (!connection.receive(datagram, source)) continue;
+
+                        ZoneUpdate update = connection.readUpdate();
+                        if (update != null) respondToUpdate(connection, update);
+                        else {
+                            packRateLimitedAddress(null, connection, rateLimitedAddress);
+                            respondToQuery(connection, connection.clientIp(), rateLimitedAddress);
+                        }
+                        connection.flush();
+                        udpQueriesServed.incrementAndGet();
+                    } catch (ClosedChannelException e) {
+                        // server stopped
+                        break;
+                    } catch (IOException | RuntimeException e) {
+                        // only this datagram is lost (e.g. its source address is unreachable), so keep serving
+                        Log.error("UDP datagram cannot be served: " + e);
+                    }
+                }
+            }).start();
+        }
+
+        Log.info("UDP server started (" + Integer.toString(totalUdpThreads) + " threads).");
+    }
+
+    private void serveClient(Transport client, long acceptTime) {
+        metrics.connectionOpened();
+        try {
+            // assign client connection and negotiate its protocol
+            ClientConnection connection = ClientConnection.open(client.inputStream(),
+                    new FirstByteOutputStream(client.outputStream(), acceptTime));
+
+            // get and print client IP address
+            String clientIp = connection.clientIp();
+            printLine();
+            Log.debug("Request from client: ", clientIp);
+            printLine();
+
+            // rate limit the address of the socket (which the client cannot choose), the reported one only in memory
+            long[] rateLimitedAddress = new long[2];
+            packRateLimitedAddress(client.remoteAddress(), connection, rateLimitedAddress);
+
+            do {
+                // respond to client (zone updates are handled by server itself)
+                ZoneUpdate update = connection.readUpdate();
+                if (update != null) respondToUpdate(connection, update);
+                else respondToQuery(connection, clientIp, rateLimitedAddress);
+
+                // coalesce responses of already received queries into a single write
+                if (!connection.isQueryPending()) connection.flush();
+
+                // check if connected
+            } while (connection.hasNextQuery());
+            connection.flush();
+
+            // print ending lines
+            printLine();
+            Log.debug("");
+        } catch (InterruptedIOException e) {
+            // in-memory connection of a stopped server
+            if (isRunning) e.printStackTrace();
+        } catch (IOException | NoSuchElementException e) {
+            e.printStackTrace();
+        } finally {
+            metrics.connectionClosed();
+            try {
+                client.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static ExecutorService createClientResponseThreads(ExecutionMode executionMode) {
+        if (executionMode == ExecutionMode.FIXED_THREAD_POOL) {
+            return Executors.newFixedThreadPool(totalClientResponseThreads);
+        }
 
-        System.out.println("Server started.");
+        // virtual threads need Java 21, so they are looked up at runtime to keep the source level unchanged
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            Log.warning("Virtual threads are not supported by this JVM; using a thread per connection instead.");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * This method registers the metrics of this server with the platform MBean server, so they can be watched by any
+     * JMX client (eg. JConsole) as {@code DNSSEC:type=Server,name=<server class>,id=<n>}.
+     */
+    private synchronized void registerMetrics() {
+        if (metricsName != null) return;
+        try {
+            ObjectName name = new ObjectName(metricsDomain + ":type=Server,name=" + getClass().getSimpleName() +
+                    ",id=" + Integer.toString(serverCount.incrementAndGet()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            metricsName = name;
+        } catch (JMException e) {
+            e.printStackTrace();
+            Log.warning("Server metrics cannot be registered.");
+        }
+    }
+
+    private synchronized void unregisterMetrics() {
+        if (metricsName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        metricsName = null;
+    }
+
+    /**
+     * @return counters and latency of responses, also exposed over JMX while the server is running
+     */
+    public final ServerMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the number of accepted connections waiting for a client response thread
+     */
+    int queueDepth() {
+        return clientSockets.size();
+    }
+
+    int activeClientResponseThreads() {
+        ExecutorService threads = clientResponseThreads;
+        if (threads instanceof ThreadPoolExecutor) return ((ThreadPoolExecutor) threads).getActiveCount();
+        return (int) metrics.getActiveConnections();    // a thread for each connection
+    }
+
+    /**
+     * @return the number of limited client threads, or 0 if each connection has its own thread
+     */
+    int clientResponseThreadCount() {
+        return (executionMode == ExecutionMode.FIXED_THREAD_POOL) ? totalClientResponseThreads : 0;
     }
 
     /**
      * This method responses to individual client request.
      * No multithreading is needed here because it is already done by {@code Server}.
      * Also, it is not needed to close client socket after response because of the same above reason.
+     * Each response should be recorded by {@code metrics().recordResponse}.
      *
-     * @param in       input stream from client
-     * @param out      output stream to client
+     * @param connection connection to client (either text or binary protocol)
      * @param clientIp
      */
-    protected abstract void respond(Scanner in, PrintWriter out, String clientIp);
+    protected abstract void respond(ClientConnection connection, String clientIp) throws IOException;
+
+    /**
+     * This method responds to a query, unless the client or its prefix is over the response rate limit: then the query
+     * is answered by a short unsigned message, so a flooding client costs neither a signature lookup nor the bandwidth
+     * of a signed response. (A response cannot simply be dropped, because clients wait for every response in order.)
+     *
+     * @param rateLimitedAddress packed address whose buckets are used (see {@link #packRateLimitedAddress})
+     */
+    private void respondToQuery(ClientConnection connection, String clientIp, long[] rateLimitedAddress)
+            throws IOException {
+        ResponseRateLimiter limiter = responseRateLimiter;
+        if (limiter == null || limiter.isAllowed(rateLimitedAddress[0], rateLimitedAddress[1])) {
+            respond(connection, clientIp);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        String domain = connection.readQuery();
+        if (domain == null) return;
+        connection.sendMessage(rateLimitedMessage);
+        metrics.recordResponse(ResponseType.RATE_LIMITED, startTime);
+        Log.debug("Response sent for rate limited client: ", clientIp);
+    }
+
+    /**
+     * The network address of the client (socket or datagram source) is used where one exists, since a client may
+     * report any IP address in its handshake; it is packed from its raw bytes, so link-local IPv6 addresses are kept.
+     * Invalid addresses share one bucket.
+     *
+     * @param remoteAddress network address of the client, or {@code null} if the connection has its own (datagram) or
+     *                      none (in memory, the reported address is used)
+     * @param address       receives the packed address (high and low 64 bits) whose response rate is limited
+     */
+    private static void packRateLimitedAddress(InetAddress remoteAddress, ClientConnection connection, long[] address) {
+        boolean isValid = (remoteAddress != null) ? NetworkTask.packIPAddress(remoteAddress.getAddress(), address)
+                : connection.clientAddress(address);
+        if (!isValid) {
+            address[0] = 0;
+            address[1] = 0;
+        }
+    }
+
+    private void respondToUpdate(ClientConnection connection, ZoneUpdate update) throws IOException {
+        Log.debug("Zone update request: ", update);
+
+        if (!isRemoteUpdateAllowed) {
+            connection.sendMessage("Zone updates are not allowed by this server.");
+            Log.debug("Response sent for not allowed zone update.");
+            return;
+        }
+
+        boolean isApplied = !updateZone(Collections.singletonList(update)).isEmpty();
+        connection.sendMessage((isApplied ? "Zone update applied: " : "Zone update rejected: ") + update);
+        Log.debug("Response sent for zone update (applied: " + Boolean.toString(isApplied) + ").");
+    }
+
+    /**
+     * This method adds, changes and deletes domain-IP records while the server is running.
+     * Only the affected records and NSEC gaps are signed again and requests in flight are not blocked.
+     * The updates are not written back to the domain-IP file.
+     *
+     * @return the updates which are applied (invalid updates, eg. adding an existing domain, are skipped)
+     */
+    public final List<ZoneUpdate> updateZone(List<ZoneUpdate> updates) {
+        return applyZoneUpdates(updates);
+    }
+
+    /**
+     * This method should be overridden by the servers which support zone updates.
+     *
+     * @return the updates which are applied
+     */
+    protected List<ZoneUpdate> applyZoneUpdates(List<ZoneUpdate> updates) {
+        return Collections.emptyList();
+    }
 
-    public final int domainCount() {
+    /**
+     * @param isRemoteUpdateAllowed whether clients may update the zone by sending update requests
+     */
+    public final void setRemoteUpdateAllowed(boolean isRemoteUpdateAllowed) {
+        this.isRemoteUpdateAllowed = isRemoteUpdateAllowed;
+    }
+
+    /**
+     * This method limits the rate of full responses for each client and for each network prefix. It may be called while
+     * the server is running.
+     *
+     * @param responseRateLimiter token buckets of clients and prefixes, or {@code null} for no limit
+     */
+    public final void setResponseRateLimiter(ResponseRateLimiter responseRateLimiter) {
+        this.responseRateLimiter = responseRateLimiter;
+    }
+
+    public int domainCount() {
         return domainIpList.size();
     }
 
+    /**
+     * @return latency from accepting a client connection until the first response byte is written to it
+     */
+    public final LatencyHistogram firstByteLatency() {
+        return firstByteLatency;
+    }
+
     public final void stopServer() {
         isRunning = false;
+        if (clientResponseThreads == null) {
+            // only UDP server is running
+            stopUdpServer();
+            stopMetrics();
+            teardownServer();
+            return;
+        }
+
         clientResponseThreads.shutdownNow();
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+                // the port is released only after the accepting thread has left 'accept()'
+                acceptThread.join();
+            } catch (IOException | InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // report accept-to-first-byte latency of the finished run
+        Log.info("Accept-to-first-byte latency (" + executionMode + "): " + firstByteLatency.summary());
+
+        stopUdpServer();
+        stopMetrics();
+        teardownServer();
+    }
+
+    private void stopMetrics() {
+        unregisterMetrics();
+        Log.info("Server metrics: ", metrics.summary());
+        if (responseRateLimiter != null) Log.info("Response rate limiting: ", responseRateLimiter.summary());
+    }
+
+    private void stopUdpServer() {
+        if (datagramChannel == null) return;
         try {
-            serverSocket.close();
+            datagramChannel.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
+        datagramChannel = null;
+
+        // report connectionless throughput of the finished run
+        long queries = udpQueriesServed.get();
+        double elapsedSeconds = (System.nanoTime() - udpStartTime) / 1e9;
+        Log.info("UDP queries served: " + Long.toString(queries) +
+                " (" + String.format("%.1f", queries / elapsedSeconds) + " queries per second)");
+    }
+
+    /**
+     * Execution modes for client responses
+     */
+    public enum ExecutionMode {
+        FIXED_THREAD_POOL,              // limited client threads with a hand-off queue (default)
+        VIRTUAL_THREAD_PER_CONNECTION   // a virtual thread for each client connection without any limit
+    }
+
+    private static class AcceptedClient {
+        final Transport transport;
+        final long acceptTime;
+
+        AcceptedClient(Transport transport, long acceptTime) {
+            this.transport = transport;
+            this.acceptTime = acceptTime;
+        }
+    }
+
+    /**
+     * Output stream which records the time of the first byte written to client
+     */
+    private class FirstByteOutputStream extends FilterOutputStream {
+        private final long acceptTime;
+        private boolean isFirstByteWritten = false;
+
+        FirstByteOutputStream(OutputStream out, long acceptTime) {
+            super(out);
+            this.acceptTime = acceptTime;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            recordFirstByte();
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) recordFirstByte();
+            out.write(b, off, len);
+        }
+
+        private void recordFirstByte() {
+            if (isFirstByteWritten) return;
+            isFirstByteWritten = true;
+            firstByteLatency.record(System.nanoTime() - acceptTime);
+        }
     }
 
     public static void printLine() {
-        System.out.println("----------------------------------------");
+        Log.debug("----------------------------------------");
     }
 
 
     /**
      * Class for containing domain and IP with sorting methods
      */
-    protected static class DomainIp implements Comparator<DomainIp> {
+    public static class DomainIp implements Comparator<DomainIp> {
         public final String domain;
         public final String ip;
 
@@ -0,0 +1,191 @@
+package DNSSEC.ServerPack;
+
+import DNSSEC.Common.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Counters and latency of a running server, exposed as a JMX MBean
+ * <p>
+ * Responses are counted by type in striped {@link LongAdder}s and their latency (from the query being read until the
+ * response is written) is recorded into a {@link LatencyHistogram}, so recording never makes request threads wait for
+ * each other. Queue depth and threads are read from the server only when an attribute is read.
+ * <p>
+ * Queries per second are measured between two reads of the attribute at least one second apart, so a monitoring tool
+ * polling it gets the rate of its own polling interval.
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+    private final Server server;
+
+    private final LongAdder[] responses = new LongAdder[ResponseType.values().length];
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LatencyHistogram responseLatency = new LatencyHistogram();
+
+    // previous sample of queries per second
+    private long sampleTime = System.nanoTime();
+    private long sampleQueries = 0;
+    private double queriesPerSecond = 0.0;
+
+
+    ServerMetrics(Server server) {
+        this.server = server;
+        for (int i = 0; i < responses.length; i++) responses[i] = new LongAdder();
+    }
+
+    /**
+     * @param startTime {@code System.nanoTime()} when the query was read
+     */
+    public void recordResponse(ResponseType type, long startTime) {
+        responses[type.ordinal()].increment();
+        responseLatency.record(System.nanoTime() - startTime);
+    }
+
+    void connectionOpened() {
+        acceptedConnections.increment();
+        activeConnections.increment();
+    }
+
+    void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    public long responses(ResponseType type) {
+        return responses[type.ordinal()].sum();
+    }
+
+    public LatencyHistogram responseLatency() {
+        return responseLatency;
+    }
+
+
+    @Override
+    public long getQueries() {
+        long queries = 0;
+        for (LongAdder response : responses) queries += response.sum();
+        return queries;
+    }
+
+    @Override
+    public synchronized double getQueriesPerSecond() {
+        long currentTime = System.nanoTime();
+        if (currentTime - sampleTime >= 1000000000L) {
+            long queries = getQueries();
+            queriesPerSecond = (queries - sampleQueries) / ((currentTime - sampleTime) / 1e9);
+            sampleTime = currentTime;
+            sampleQueries = queries;
+        }
+        return queriesPerSecond;
+    }
+
+    @Override
+    public long getAnswers() {
+        return responses(ResponseType.ANSWER);
+    }
+
+    @Override
+    public long getDenials() {
+        return responses(ResponseType.DENIAL);
+    }
+
+    @Override
+    public long getInvalidRequests() {
+        return responses(ResponseType.INVALID);
+    }
+
+    @Override
+    public long getBlockedResponses() {
+        return responses(ResponseType.BLOCKED);
+    }
+
+    @Override
+    public long getBusyResponses() {
+        return responses(ResponseType.BUSY);
+    }
+
+    @Override
+    public long getRateLimitedResponses() {
+        return responses(ResponseType.RATE_LIMITED);
+    }
+
+    @Override
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return server.queueDepth();
+    }
+
+    @Override
+    public int getActiveClientResponseThreads() {
+        return server.activeClientResponseThreads();
+    }
+
+    @Override
+    public int getClientResponseThreads() {
+        return server.clientResponseThreadCount();
+    }
+
+    @Override
+    public long getResponseLatencyP50Micros() {
+        return responseLatency.valueAtPercentile(50.0) / 1000;
+    }
+
+    @Override
+    public long getResponseLatencyP99Micros() {
+        return responseLatency.valueAtPercentile(99.0) / 1000;
+    }
+
+    @Override
+    public long getResponseLatencyP999Micros() {
+        return responseLatency.valueAtPercentile(99.9) / 1000;
+    }
+
+    @Override
+    public long getResponseLatencyMaxMicros() {
+        return responseLatency.max() / 1000;
+    }
+
+    @Override
+    public long getFirstByteLatencyP99Micros() {
+        return server.firstByteLatency().valueAtPercentile(99.0) / 1000;
+    }
+
+    @Override
+    public void resetLatency() {
+        responseLatency.reset();
+        server.firstByteLatency().reset();
+    }
+
+    /**
+     * @return one-line summary of response counts and latency
+     */
+    public String summary() {
+        return "queries " + Long.toString(getQueries()) + " (answers " + Long.toString(getAnswers()) +
+                ", denials " + Long.toString(getDenials()) + ", invalid " + Long.toString(getInvalidRequests()) +
+                ", blocked " + Long.toString(getBlockedResponses()) + ", busy " + Long.toString(getBusyResponses()) +
+                ", rate limited " + Long.toString(getRateLimitedResponses()) +
+                "), connections " + Long.toString(getAcceptedConnections()) + ", latency " + responseLatency.summary();
+    }
+
+
+    /**
+     * Types of responses to queries
+     */
+    public enum ResponseType {
+        ANSWER,     // existing domain
+        DENIAL,     // NSEC or NSEC3 of non-existing domain
+        INVALID,    // invalid characters or domain outside bounds
+        BLOCKED,    // client blocked (or invalid client IP address) by low profiling
+        BUSY,       // server cannot sign the response now
+        RATE_LIMITED    // client or its prefix over the response rate limit
+    }
+}
@@ -0,0 +1,45 @@
+package DNSSEC.ServerPack;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * JMX management interface of {@link ServerMetrics} (attributes are read by JConsole, VisualVM or any JMX client)
+ */
+public interface ServerMetricsMBean {
+    long getQueries();
+
+    double getQueriesPerSecond();
+
+    long getAnswers();
+
+    long getDenials();
+
+    long getInvalidRequests();
+
+    long getBlockedResponses();
+
+    long getBusyResponses();
+
+    long getRateLimitedResponses();
+
+    long getActiveConnections();
+
+    long getAcceptedConnections();
+
+    int getQueueDepth();
+
+    int getActiveClientResponseThreads();
+
+    int getClientResponseThreads();
+
+    long getResponseLatencyP50Micros();
+
+    long getResponseLatencyP99Micros();
+
+    long getResponseLatencyP999Micros();
+
+    long getResponseLatencyMaxMicros();
+
+    long getFirstByteLatencyP99Micros();
+
+    void resetLatency();
+}
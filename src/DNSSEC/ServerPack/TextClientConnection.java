@@ -0,0 +1,78 @@
+package DNSSEC.ServerPack;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Line based text protocol: one domain per request line and one space-separated response line
+ */
+class TextClientConnection extends ClientConnection {
+    private final Scanner in;
+    private final OutputStream out;
+
+    private String pendingLine = null;
+
+
+    TextClientConnection(InputStream inputStream, OutputStream outputStream) {
+        in = new Scanner(new BufferedReader(new InputStreamReader(inputStream)));
+        out = outputStream;
+        clientIp = in.nextLine();
+    }
+
+    @Override
+    public ZoneUpdate readUpdate() {
+        if (pendingLine == null) {
+            if (!in.hasNextLine()) return null;
+            pendingLine = in.nextLine();
+        }
+        if (!pendingLine.startsWith(ZoneUpdate.textHeader + " ")) return null;
+
+        // invalid update text is kept as a query, so that it is rejected as an invalid domain
+        ZoneUpdate update = ZoneUpdate.parse(pendingLine);
+        if (update != null) pendingLine = null;
+        return update;
+    }
+
+    @Override
+    public String readQuery() {
+        String line = pendingLine;
+        pendingLine = null;
+        if (line != null) return line;
+        return in.hasNextLine() ? in.nextLine() : null;
+    }
+
+    @Override
+    public boolean hasNextQuery() {
+        if (pendingLine != null) return true;
+        try {
+            return in.hasNext();
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isQueryPending() {
+        return false;   // responses are always flushed immediately
+    }
+
+    @Override
+    public void send(EncodedResponse response) throws IOException {
+        // every response line is flushed immediately
+        out.write(response.text);
+        out.flush();
+    }
+
+    @Override
+    public void sendMessage(String message) throws IOException {
+        out.write((message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,199 @@
+package DNSSEC.ServerPack;
+
+import DNSSEC.Common.BinaryProtocol;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Pre-signed zone image which is memory-mapped at server startup instead of parsing and signing the zone again
+ * <p>
+ * Image layout:
+ * <pre>
+ * header:  [8 bytes magic][long sourceChecksum][long bodyChecksum][int recordCount][int gapCount]
+ * records: recordCount x ([string domain][string ip][bytes signature])   in sorted domain order
+ * gaps:    gapCount x [bytes signature]                                  NSEC gaps in domain order
+ * </pre>
+ * Strings and signatures use the same encoding as {@link BinaryProtocol}. {@code sourceChecksum} covers the
+ * signature algorithm, the domain-IP file and the public key, so an image created from another zone, algorithm or key
+ * is detected as stale.
+ * <p>
+ * The mapping is read once at startup: it saves parsing, sorting and signing, but the zone is not served from it.
+ * Records and signatures are decoded into the heap zone, because responses are written by the connections as encoded
+ * byte arrays and zone updates publish new heap snapshots.
+ */
+public class ZoneImage {
+    private static final byte[] magic = {'D', 'N', 'S', 'Z', 'O', 'N', 'E', 1};
+    private static final int headerLength = magic.length + 8 + 8 + 4 + 4;
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int gapCount;
+
+
+    private ZoneImage(ByteBuffer buffer, int recordCount, int gapCount) {
+        this.buffer = buffer;
+        this.recordCount = recordCount;
+        this.gapCount = gapCount;
+    }
+
+    /**
+     * @return checksum of the signature algorithm and all files from which the image is created
+     */
+    public static long sourceChecksum(String signatureAlgorithm, File... sourceFiles) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(signatureAlgorithm.getBytes(StandardCharsets.UTF_8));
+        for (File sourceFile : sourceFiles) {
+            try (FileChannel channel = FileChannel.open(sourceFile.toPath())) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return mapped image, or {@code null} if image does not exist, is stale or is corrupted
+     */
+    public static ZoneImage open(File imageFile, long sourceChecksum) {
+        if (!imageFile.isFile()) return null;
+
+        try (FileChannel channel = FileChannel.open(imageFile.toPath())) {
+            if (channel.size() < headerLength || channel.size() > Integer.MAX_VALUE) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            // check header
+            byte[] imageMagic = new byte[magic.length];
+            buffer.get(imageMagic);
+            if (!Arrays.equals(imageMagic, magic)) return null;
+            if (buffer.getLong() != sourceChecksum) return null;
+            long bodyChecksum = buffer.getLong();
+            int recordCount = buffer.getInt();
+            int gapCount = buffer.getInt();
+
+            // check body
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != bodyChecksum) return null;
+
+            return new ZoneImage(buffer.slice(), recordCount, gapCount);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public static void write(File imageFile, long sourceChecksum,
+                             List<Server.DomainIp> domainIps, List<byte[]> recordSignatures, List<byte[]> gapSignatures) throws IOException {
+        // calculate body length
+        long bodyLength = 0;
+        for (int i = 0; i < domainIps.size(); i++) {
+            Server.DomainIp domainIp = domainIps.get(i);
+            bodyLength += 2 + domainIp.domain.length() * 3L + 2 + domainIp.ip.length() * 3L + 2 + recordSignatures.get(i).length;
+        }
+        for (byte[] signature : gapSignatures) bodyLength += 2 + signature.length;
+        if (bodyLength + headerLength > Integer.MAX_VALUE) throw new IOException("Zone is too large for an image.");
+
+        // write body
+        ByteBuffer body = ByteBuffer.allocate((int) bodyLength);
+        for (int i = 0; i < domainIps.size(); i++) {
+            Server.DomainIp domainIp = domainIps.get(i);
+            BinaryProtocol.putString(body, domainIp.domain);
+            BinaryProtocol.putString(body, domainIp.ip);
+            BinaryProtocol.putBytes(body, recordSignatures.get(i));
+        }
+        for (byte[] signature : gapSignatures) BinaryProtocol.putBytes(body, signature);
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        // write header
+        ByteBuffer header = ByteBuffer.allocate(headerLength);
+        header.put(magic);
+        header.putLong(sourceChecksum);
+        header.putLong(crc.getValue());
+        header.putInt(domainIps.size());
+        header.putInt(gapSignatures.size());
+        header.flip();
+
+        // write into temporary file first so that a running server never maps a partially written image
+        File tempFile = new File(imageFile.getPath() + ".tmp");
+        try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw")) {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            while (header.hasRemaining()) channel.write(header);
+            while (body.hasRemaining()) channel.write(body);
+            channel.force(false);
+        }
+        Files.move(tempFile.toPath(), imageFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public int recordCount() {
+        return recordCount;
+    }
+
+    public int gapCount() {
+        return gapCount;
+    }
+
+    /**
+     * @return domainIp records in sorted domain order
+     */
+    public List<Server.DomainIp> readDomainIps() {
+        ByteBuffer records = buffer.duplicate();
+        List<Server.DomainIp> domainIps = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            String domain = BinaryProtocol.getString(records);
+            String ip = BinaryProtocol.getString(records);
+            skipBytes(records);
+            domainIps.add(new Server.DomainIp(domain, ip));
+        }
+        return domainIps;
+    }
+
+    /**
+     * @return record signatures in the order of {@link #readDomainIps()}
+     */
+    public byte[][] readRecordSignatures() {
+        ByteBuffer records = buffer.duplicate();
+        byte[][] signatures = new byte[recordCount][];
+        for (int i = 0; i < recordCount; i++) {
+            skipBytes(records);
+            skipBytes(records);
+            signatures[i] = BinaryProtocol.getBytes(records);
+        }
+        return signatures;
+    }
+
+    /**
+     * @return NSEC gap signatures in domain order
+     */
+    public byte[][] readGapSignatures() {
+        ByteBuffer gaps = buffer.duplicate();
+        for (int i = 0; i < recordCount; i++) {
+            skipBytes(gaps);
+            skipBytes(gaps);
+            skipBytes(gaps);
+        }
+        byte[][] signatures = new byte[gapCount][];
+        for (int i = 0; i < gapCount; i++) signatures[i] = BinaryProtocol.getBytes(gaps);
+        return signatures;
+    }
+
+    private static void skipBytes(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        buffer.position(buffer.position() + length);
+    }
+}
@@ -0,0 +1,367 @@
+package DNSSEC.ServerPack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Parallel loader of domain-IP records ({@code domain,ip} lines) sorted by domain
+ * <p>
+ * The file is split into chunks of {@code chunkBytes}; each chunk owns the lines which start inside it. Chunks are read
+ * by positional NIO reads (so workers share one channel without seeking) into a buffer of the chunk, parsed by
+ * scanning bytes for the separators (no regular expression or {@code split}) and sorted into a run. The runs are merged
+ * pairwise by a fork-join tree, so the merges of each level run in parallel. Only the records and the runs being merged
+ * are kept on the heap, never the whole file.
+ * <p>
+ * Runs keep the first 16 characters of each domain as two packed {@code long} keys next to the records, so most
+ * comparisons of sorting and merging read only a primitive array instead of following the record to its string.
+ * <p>
+ * A malformed line (no comma, more than one comma or an empty field) is skipped and counted instead of ending the zone;
+ * blank lines are ignored. A line whose domain has a character above {@code U+00FF} is skipped and counted the same way,
+ * since the domain index of the zone cannot hold it. The order of records with the same domain is kept as in the file.
+ */
+public class ZoneLoader {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final int loadingThreads = Runtime.getRuntime().availableProcessors();
+
+    private static final int chunkBytes = 4 * 1024 * 1024;     // bytes parsed by a worker without splitting further
+    private static final int maxLineBytes = 4096;              // lines crossing the end of a chunk by more are malformed
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    /**
+     * @return records sorted by domain, with the count of skipped lines
+     */
+    public static Result load(File file) throws IOException {
+        long startTime = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkCount = (int) Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+            Chunk[] chunks = new Chunk[chunkCount];
+            for (int i = 0; i < chunkCount; i++) chunks[i] = new Chunk(channel, size, (long) i * chunkBytes);
+
+            LoadTask task = new LoadTask(chunks, 0, chunkCount);
+            Run run;
+            try {
+                if (chunkCount == 1) {
+                    // small file is loaded in the calling thread without starting a pool
+                    run = task.compute();
+                } else {
+                    ForkJoinPool pool = new ForkJoinPool(loadingThreads);
+                    try {
+                        run = pool.invoke(task);
+                    } finally {
+                        pool.shutdown();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // line numbers of chunks follow from the lines of earlier chunks
+            long malformedLines = 0;
+            long firstMalformedLine = 0;
+            long lines = 0;
+            for (Chunk chunk : chunks) {
+                if (chunk.malformedLines > 0 && firstMalformedLine == 0) {
+                    firstMalformedLine = lines + chunk.firstMalformedLine;
+                }
+                malformedLines += chunk.malformedLines;
+                lines += chunk.lines;
+            }
+            return new Result(Arrays.asList(run.records), malformedLines, firstMalformedLine, System.nanoTime() - startTime);
+        }
+    }
+
+
+    /**
+     * Records loaded from a file
+     */
+    public static class Result {
+        public final List<Server.DomainIp> domainIps;   // sorted by domain
+        public final long malformedLines;
+        public final long firstMalformedLine;           // line number (from 1), or 0 if no line is malformed
+        public final long elapsedNanos;
+
+        Result(List<Server.DomainIp> domainIps, long malformedLines, long firstMalformedLine, long elapsedNanos) {
+            this.domainIps = domainIps;
+            this.malformedLines = malformedLines;
+            this.firstMalformedLine = firstMalformedLine;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String summary() {
+            return Integer.toString(domainIps.size()) + " records in " + String.format("%.1f", elapsedNanos / 1e6) +
+                    " msec, " + Long.toString(malformedLines) + " malformed lines skipped" +
+                    ((malformedLines > 0) ? " (first at line " + Long.toString(firstMalformedLine) + ")" : "");
+        }
+    }
+
+
+    /**
+     * Task which loads a range of chunks into one sorted run
+     */
+    private static class LoadTask extends RecursiveTask<Run> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Chunk[] chunks;
+        private final int start;
+        private final int end;
+
+        LoadTask(Chunk[] chunks, int start, int end) {
+            this.chunks = chunks;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Run compute() {
+            if (end - start == 1) {
+                try {
+                    return chunks[start].parse();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            int middle = (start + end) >>> 1;
+            LoadTask left = new LoadTask(chunks, start, middle);
+            left.fork();
+            Run right = new LoadTask(chunks, middle, end).compute();
+            // keys are not needed after the last merge
+            boolean isLastMerge = start == 0 && end == chunks.length;
+            return Run.merge(left.join(), right, !isLastMerge);
+        }
+    }
+
+
+    /**
+     * Records sorted by domain with their sort keys (characters 0-7 and 8-15 of the domain at {@code 2i} and
+     * {@code 2i + 1})
+     * <p>
+     * Each character is packed into 8 bits. A character from 255 on does not fit, so the keys end at the first such
+     * character: it is packed as 255 and the rest of the keys are zero. The packing keeps the order (a smaller key is
+     * always a smaller domain), so records are compared by their domains only when their keys are equal.
+     */
+    private static class Run {
+        private static final int insertionSortLength = 16;
+
+        final long[] keys;      // null if the run is not merged again
+        final Server.DomainIp[] records;
+
+        Run(long[] keys, Server.DomainIp[] records) {
+            this.keys = keys;
+            this.records = records;
+        }
+
+        static long key(String domain, int start) {
+            int end = Math.min(domain.length(), start + 8);
+            for (int i = 0; i < Math.min(start, end); i++) if (domain.charAt(i) >= 255) return 0;    // keys ended
+
+            long key = 0;
+            int i = start;
+            while (i < end) {
+                char c = domain.charAt(i++);
+                key = (key << 8) | Math.min(c, 255);
+                if (c >= 255) break;
+            }
+            return (i == start) ? 0 : key << (8 * (start + 8 - i));
+        }
+
+        /**
+         * This method sorts the records by a stable bottom-up merge sort.
+         */
+        static Run sort(long[] keys, Server.DomainIp[] records) {
+            int size = records.length;
+            for (int start = 0; start < size; start += insertionSortLength) {
+                insertionSort(keys, records, start, Math.min(size, start + insertionSortLength));
+            }
+
+            long[] otherKeys = new long[keys.length];
+            Server.DomainIp[] otherRecords = new Server.DomainIp[size];
+            for (int width = insertionSortLength; width < size; width *= 2) {
+                for (int start = 0; start < size; start += 2 * width) {
+                    int middle = Math.min(size, start + width);
+                    int end = Math.min(size, start + 2 * width);
+                    merge(keys, records, start, middle, keys, records, middle, end, otherKeys, otherRecords, start);
+                }
+                long[] swapKeys = keys;
+                keys = otherKeys;
+                otherKeys = swapKeys;
+                Server.DomainIp[] swapRecords = records;
+                records = otherRecords;
+                otherRecords = swapRecords;
+            }
+            return new Run(keys, records);
+        }
+
+        /**
+         * @param isKeyNeeded whether the merged run is merged again (otherwise its keys are not written)
+         */
+        static Run merge(Run left, Run right, boolean isKeyNeeded) {
+            int size = left.records.length + right.records.length;
+            Run merged = new Run(isKeyNeeded ? new long[2 * size] : null, new Server.DomainIp[size]);
+            merge(left.keys, left.records, 0, left.records.length, right.keys, right.records, 0, right.records.length,
+                    merged.keys, merged.records, 0);
+            return merged;
+        }
+
+        /**
+         * Records of the left range come first among the same domains, so the merge is stable.
+         */
+        private static void merge(long[] leftKeys, Server.DomainIp[] leftRecords, int leftStart, int leftEnd,
+                                  long[] rightKeys, Server.DomainIp[] rightRecords, int rightStart, int rightEnd,
+                                  long[] mergedKeys, Server.DomainIp[] mergedRecords, int mergedStart) {
+            int i = leftStart, j = rightStart, k = mergedStart;
+            while (i < leftEnd && j < rightEnd) {
+                if (compare(leftKeys, leftRecords, i, rightKeys, rightRecords, j) <= 0) copy(leftKeys, leftRecords, i++, mergedKeys, mergedRecords, k++);
+                else copy(rightKeys, rightRecords, j++, mergedKeys, mergedRecords, k++);
+            }
+            while (i < leftEnd) copy(leftKeys, leftRecords, i++, mergedKeys, mergedRecords, k++);
+            while (j < rightEnd) copy(rightKeys, rightRecords, j++, mergedKeys, mergedRecords, k++);
+        }
+
+        private static void insertionSort(long[] keys, Server.DomainIp[] records, int start, int end) {
+            for (int i = start + 1; i < end; i++) {
+                long firstKey = keys[2 * i], secondKey = keys[2 * i + 1];
+                Server.DomainIp record = records[i];
+                int j = i - 1;
+                while (j >= start && compare(keys, records, j, firstKey, secondKey, record) > 0) {
+                    copy(keys, records, j, keys, records, j + 1);
+                    j--;
+                }
+                keys[2 * (j + 1)] = firstKey;
+                keys[2 * (j + 1) + 1] = secondKey;
+                records[j + 1] = record;
+            }
+        }
+
+        private static int compare(long[] keys, Server.DomainIp[] records, int i,
+                                   long[] otherKeys, Server.DomainIp[] otherRecords, int j) {
+            return compare(keys, records, i, otherKeys[2 * j], otherKeys[2 * j + 1], otherRecords[j]);
+        }
+
+        private static int compare(long[] keys, Server.DomainIp[] records, int i,
+                                   long otherFirstKey, long otherSecondKey, Server.DomainIp otherRecord) {
+            int result = Long.compareUnsigned(keys[2 * i], otherFirstKey);
+            if (result == 0) result = Long.compareUnsigned(keys[2 * i + 1], otherSecondKey);
+            if (result == 0) result = records[i].domain.compareTo(otherRecord.domain);
+            return result;
+        }
+
+        private static void copy(long[] keys, Server.DomainIp[] records, int i,
+                                 long[] targetKeys, Server.DomainIp[] targetRecords, int j) {
+            if (targetKeys != null) {
+                targetKeys[2 * j] = keys[2 * i];
+                targetKeys[2 * j + 1] = keys[2 * i + 1];
+            }
+            targetRecords[j] = records[i];
+        }
+    }
+
+
+    /**
+     * Lines which start in {@code [start, start + chunkBytes)} of the file (the last one may end after it)
+     */
+    private static class Chunk {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final long start;
+
+        // written by the parsing worker, read after the fork-join tree is joined
+        int lines = 0;
+        int malformedLines = 0;
+        int firstMalformedLine = 0;     // line number inside the chunk (from 1)
+
+        Chunk(FileChannel channel, long fileSize, long start) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.start = start;
+        }
+
+        Run parse() throws IOException {
+            // read from the byte before the chunk (to see if a line starts at the chunk) to the end of its last line
+            long readStart = Math.max(0, start - 1);
+            long chunkEnd = Math.min(fileSize, start + chunkBytes);
+            int length = (int) (Math.min(fileSize, chunkEnd + maxLineBytes) - readStart);
+            byte[] buffer = new byte[length];
+            ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+            while (target.hasRemaining()) {
+                if (channel.read(target, readStart + target.position()) < 0) break;
+            }
+            length = target.position();
+            int end = (int) (chunkEnd - readStart);
+
+            // skip the line owned by the previous chunk
+            int position = 0;
+            if (start > 0) {
+                while (position < end && buffer[position] != '\n') position++;
+                position++;
+            }
+
+            Server.DomainIp[] records = new Server.DomainIp[Math.max(16, (end - position) / 24)];
+            int size = 0;
+            while (position < end) {
+                // find separators of the line
+                int lineStart = position;
+                int comma = -1;
+                int commas = 0;
+                while (position < length && buffer[position] != '\n') {
+                    if (buffer[position] == ',') {
+                        comma = position;
+                        commas++;
+                    }
+                    position++;
+                }
+                boolean isEnded = position < length || readStart + length == fileSize;
+                int lineEnd = (position > lineStart && buffer[position - 1] == '\r') ? position - 1 : position;
+                position++;
+                lines++;
+
+                if (lineEnd == lineStart) continue;     // blank line
+                if (!isEnded || commas != 1 || comma == lineStart || comma == lineEnd - 1) {
+                    if (malformedLines++ == 0) firstMalformedLine = lines;
+                    if (!isEnded) break;    // the rest of this too long line belongs to no chunk
+                    continue;
+                }
+
+                String domain = new String(buffer, lineStart, comma - lineStart, StandardCharsets.UTF_8);
+                if (!isIndexable(domain)) {
+                    if (malformedLines++ == 0) firstMalformedLine = lines;
+                    continue;
+                }
+
+                if (size == records.length) records = Arrays.copyOf(records, size * 2);
+                records[size++] = new Server.DomainIp(domain,
+                        new String(buffer, comma + 1, lineEnd - comma - 1, StandardCharsets.UTF_8));
+            }
+
+            records = Arrays.copyOf(records, size);
+            long[] keys = new long[2 * size];
+            for (int i = 0; i < size; i++) {
+                keys[2 * i] = Run.key(records[i].domain, 0);
+                keys[2 * i + 1] = Run.key(records[i].domain, 8);
+            }
+            return Run.sort(keys, records);
+        }
+
+        /**
+         * @return {@code false} if the domain has a character above {@code U+00FF}, which the zone index cannot hold
+         */
+        private static boolean isIndexable(String domain) {
+            for (int i = 0; i < domain.length(); i++) if (domain.charAt(i) > 0xFF) return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package DNSSEC.ServerPack;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Class for a single runtime change of a domain-IP record
+ */
+public class ZoneUpdate {
+    public enum Type {
+        ADD,        // add a new domain
+        CHANGE,     // change IP address of an existing domain
+        DELETE      // delete an existing domain (IP address is ignored)
+    }
+
+    public static final String textHeader = "UPDATE";
+
+    public final Type type;
+    public final String domain;
+    public final String ip;
+
+    public ZoneUpdate(Type type, String domain, String ip) {
+        this.type = type;
+        this.domain = domain;
+        this.ip = (ip == null) ? "" : ip;
+    }
+
+    /**
+     * @return update from its text form ({@code "UPDATE ADD domain ip"}, {@code "UPDATE CHANGE domain ip"}
+     * or {@code "UPDATE DELETE domain"}), or {@code null} if the text is not a valid update
+     */
+    public static ZoneUpdate parse(String line) {
+        String[] words = line.split(" ");
+        if (words.length < 3 || !words[0].equals(textHeader)) return null;
+
+        Type type;
+        try {
+            type = Type.valueOf(words[1]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (type == Type.DELETE) return (words.length == 3) ? new ZoneUpdate(type, words[2], "") : null;
+        return (words.length == 4) ? new ZoneUpdate(type, words[2], words[3]) : null;
+    }
+
+    @Override
+    public String toString() {
+        return textHeader + " " + type + " " + domain + ((type == Type.DELETE) ? "" : (" " + ip));
+    }
+}
@@ -0,0 +1,132 @@
+import DNSSEC.ClientPack.Behaviour.LoadGenerator;
+import DNSSEC.ClientPack.Client;
+import DNSSEC.Common.LatencyHistogram;
+import DNSSEC.Common.Log;
+import DNSSEC.ServerPack.Security.NSEC;
+import DNSSEC.ServerPack.Server;
+import DNSSEC.ServerPack.ZoneLoader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by arnob on 18/10/2026.
+ * Main class for load test which runs a server and load generator clients at several loads
+ * <p>
+ * Each load is run with {@code totalConnections} load generators for a fixed duration. A target of 0 queries per second
+ * is a closed loop run (maximum throughput), other targets are open loop runs. Throughput and latency percentiles of
+ * every run are written into a CSV file.
+ */
+public class LoadTest {
+    // ---------- Configurable Data (start) ---------- //
+
+    private static final String loadTestFolder = "AutomatedTest";
+    private static final String loadTestFilename = "data_load.csv";
+    private static final String domainIpFilename = "domain_ip.csv";
+
+    private static final int totalConnections = 8;
+    private static final double[] targetQpsList = {0, 1000, 2000, 5000, 10000};  // for all connections, 0 for closed loop
+    private static final long runDurationMillis = 10000;
+
+    private static final double existingWeight = 0.6;
+    private static final double nonExistingWeight = 0.3;
+    private static final double walkingWeight = 0.1;
+
+    private static final Client.Protocol protocol = Client.Protocol.BINARY;
+
+    private static final String ipPrefix = "10.121.101.";
+
+    // ---------- Configurable Data (end) ---------- //
+
+
+    public static void main(String[] args) {
+        // show load test start message
+        Log.info("Load Test started..........");
+
+        // create file for print
+        PrintWriter fileOut;
+        try {
+            fileOut = new PrintWriter(new File(loadTestFolder + "/" + loadTestFilename));
+            fileOut.println("Mode,TargetQps,Connections,Queries,Answers,Denials,Messages,Failures," +
+                    "Throughput (query per sec),p50 (usec),p99 (usec),p999 (usec),Max (usec)");
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            Log.error("Load test file cannot be created.");
+            return;
+        }
+
+        // run server
+        Server server = new NSEC();
+        server.runServer();
+        waitForMoment(); // wait for server to be ready
+
+        LoadGenerator.QueryMix queryMix = new LoadGenerator.QueryMix(readExistingDomains(), existingWeight,
+                nonExistingWeight, walkingWeight);
+        for (double targetQps : targetQpsList) {
+            // run load generator clients
+            LatencyHistogram latency = new LatencyHistogram();
+            LoadGenerator[] generators = new LoadGenerator[totalConnections];
+            for (int i = 0; i < totalConnections; i++) {
+                generators[i] = new LoadGenerator(ipPrefix + Integer.toString(i + 1), protocol, queryMix,
+                        targetQps / totalConnections, runDurationMillis, latency);
+                generators[i].runClient();
+            }
+            for (LoadGenerator generator : generators) {
+                while (!generator.isFinished()) waitForMoment();
+            }
+
+            // print result
+            long queries = 0, answers = 0, denials = 0, messages = 0, failures = 0, elapsedNanos = 0;
+            for (LoadGenerator generator : generators) {
+                queries += generator.queriesSent();
+                answers += generator.answers();
+                denials += generator.denials();
+                messages += generator.messages();
+                failures += generator.failures();
+                elapsedNanos = Math.max(elapsedNanos, generator.elapsedNanos());
+            }
+            double throughput = (answers + denials + messages) / (elapsedNanos / 1e9);
+            String mode = (targetQps > 0) ? "OpenLoop" : "ClosedLoop";
+            fileOut.println(mode + "," + Double.toString(targetQps) + "," + Integer.toString(totalConnections) + "," +
+                    Long.toString(queries) + "," + Long.toString(answers) + "," + Long.toString(denials) + "," +
+                    Long.toString(messages) + "," + Long.toString(failures) + "," + String.format("%.1f", throughput) + "," +
+                    Long.toString(latency.valueAtPercentile(50.0) / 1000) + "," +
+                    Long.toString(latency.valueAtPercentile(99.0) / 1000) + "," +
+                    Long.toString(latency.valueAtPercentile(99.9) / 1000) + "," + Long.toString(latency.max() / 1000));
+            fileOut.flush();
+            Log.info(mode + " (target " + String.format("%.0f", targetQps) + " qps): " +
+                    String.format("%.1f", throughput) + " qps, " + latency.summary());
+        }
+
+        // stop server and close test file
+        server.stopServer();
+        fileOut.close();
+
+        // show load test end message
+        Log.info("Load Test finished..........");
+        Log.flush();
+    }
+
+    private static List<String> readExistingDomains() {
+        List<String> domains = new ArrayList<>();
+        try {
+            for (Server.DomainIp domainIp : ZoneLoader.load(new File(domainIpFilename)).domainIps) domains.add(domainIp.domain);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(-100);  // fatal error, so terminate load test
+        }
+        return domains;
+    }
+
+    private static void waitForMoment() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,4 +1,5 @@
 import DNSSEC.ServerPack.Security.LowProfiling;
+import DNSSEC.ServerPack.Security.ResponseRateLimiter;
 import DNSSEC.ServerPack.Server;
 
 /**
@@ -7,8 +8,12 @@ import DNSSEC.ServerPack.Server;
  */
 public class ServerMain {
     public static void main(String[] args) {
+        //Log.setLevel(Log.Level.INFO);
         //Server server = new NSEC();
         Server server = new LowProfiling(10);
+        //server.setResponseRateLimiter(new ResponseRateLimiter(100, 200, 1000, 2000));
         server.runServer();
+        //server.runServer(Server.ExecutionMode.VIRTUAL_THREAD_PER_CONNECTION);
+        //server.runUdpServer(Runtime.getRuntime().availableProcessors());
     }
 }